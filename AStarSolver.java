@@ -0,0 +1,281 @@
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The class <b>AStarSolver</b> is an exact <b>Solver</b>, using the A* search with
+ * the admissible lower bound of <b>FloodState</b> (the number of remaining colors,
+ * or the eccentricity of the captured region in the component graph, whichever is
+ * larger). States reached again with more moves are pruned. They are remembered in
+ * a HashMap, or in a <b>TranspositionTable</b> if the solver is given one, which can
+ * be shared by searches running in parallel. As in the HashMap, the current color is
+ * not part of the key: a state only differs from another one with the same captured
+ * dots by the color it cannot select, which would capture nothing.
+ *
+ * The search starts from the best solution of the greedy solver and of a beam search
+ * (given a quarter of the time budget), and prunes every state that cannot beat it.
+ * If the time budget runs out, the best solution found so far is returned, and
+ * <b>isOptimal</b> tells whether it was proven optimal.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class AStarSolver implements Solver {
+
+    private static final int BEAM_WIDTH = 64;
+
+    private long timeBudget;
+    private TranspositionTable table;
+    private boolean optimal;
+    private long expandedNodes;
+
+    /**
+     * Comparator ordering the open nodes: smallest estimated total first, then the
+     * deepest one (closest to a solution)
+     */
+    private static final Comparator<SearchNode> BEST_FIRST = new Comparator<SearchNode>() {
+        public int compare(SearchNode a, SearchNode b) {
+            int f = Integer.compare(a.getDepth() + a.getLowerBound(), b.getDepth() + b.getLowerBound());
+            if (f != 0) {
+                return f;
+            }
+            return Integer.compare(b.getDepth(), a.getDepth());
+        }
+    };
+
+    /**
+     * Constructor for a solver without time budget
+     */
+    public AStarSolver() {
+
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param timeBudget
+     *            the time budget, in milliseconds
+     */
+    public AStarSolver(long timeBudget) {
+
+        this(timeBudget, null);
+    }
+
+    /**
+     * Constructor for a solver remembering the states in a transposition table
+     *
+     * @param timeBudget
+     *            the time budget, in milliseconds
+     * @param table
+     *            the table of the states reached, or null to use a HashMap
+     */
+    public AStarSolver(long timeBudget, TranspositionTable table) {
+
+        this.timeBudget = timeBudget;
+        this.table = table;
+    }
+
+    /**
+     * Returns true if the last solution returned was proven optimal, false if the
+     * time budget ran out before
+     *
+     * @return optimal
+     */
+    public boolean isOptimal() {
+
+        return optimal;
+    }
+
+    /**
+     * Returns the number of nodes expanded by the last search
+     *
+     * @return expandedNodes
+     */
+    public long getExpandedNodes() {
+
+        return expandedNodes;
+    }
+
+    /**
+     * Computes a sequence of moves finishing the game
+     *
+     * @param model
+     *            the model of the game, which is not modified
+     * @return the colors to select, in order
+     */
+    public int[] solve(GameModel model) {
+
+        return solve(new FloodState(model));
+    }
+
+    /**
+     * Computes a sequence of moves finishing the game from a given state
+     *
+     * @param start
+     *            the state to start from, which is not modified
+     * @return the colors to select, in order
+     */
+    public int[] solve(FloodState start) {
+
+        long deadline = BeamSearchSolver.deadline(timeBudget);
+
+        // a quarter of the budget goes to the first solution
+        int[] incumbent = new GreedySolver().solve(start);
+        int[] beam = new BeamSearchSolver(BEAM_WIDTH, timeBudget / 4).solve(start);
+        if (beam.length < incumbent.length) {
+            incumbent = beam;
+        }
+
+        return solve(start, incumbent, deadline);
+    }
+
+    /**
+     * Computes an optimal sequence of moves, given a first solution to beat
+     *
+     * @param start
+     *            the state to start from, which is not modified
+     * @param incumbent
+     *            a known solution from that state
+     * @param deadline
+     *            the value of System.nanoTime after which the search stops
+     * @return the colors to select, in order
+     */
+    int[] solve(FloodState start, int[] incumbent, long deadline) {
+
+        return solve(start, incumbent, deadline, new AtomicInteger(incumbent.length), 0);
+    }
+
+    /**
+     * Computes an optimal sequence of moves, pruning with a bound that may be shared
+     * with other searches running in parallel. The bound is a total number of moves,
+     * counted from a common root which is <b>offset</b> moves above the start; it is
+     * lowered whenever a better solution is found.
+     *
+     * @param start
+     *            the state to start from, which is not modified
+     * @param incumbent
+     *            a known solution from that state, or null
+     * @param deadline
+     *            the value of System.nanoTime after which the search stops
+     * @param bound
+     *            the number of moves from the root that a solution must beat
+     * @param offset
+     *            the number of moves from the root to the start
+     * @return the best colors to select from the start, or null if no solution from
+     *            the start beats the bound
+     */
+    int[] solve(FloodState start, int[] incumbent, long deadline, AtomicInteger bound, int offset) {
+
+        optimal = false;
+        expandedNodes = 0;
+
+        int[] best = incumbent;
+
+        PriorityQueue<SearchNode> open = new PriorityQueue<SearchNode>(1024, BEST_FIRST);
+        HashMap<FloodState, Integer> depths = new HashMap<FloodState, Integer>();
+
+        SearchNode root = new SearchNode(start.copy());
+        if (root.getState().isFinished()) {
+            optimal = true;
+            return new int[0];
+        }
+        open.add(root);
+        depths.put(root.getState(), 0);
+        if (table != null) {
+            table.offer(root.getState().getRegionHash(), root.getState().getSteps());
+        }
+
+        while (!open.isEmpty()) {
+
+            SearchNode node = open.poll();
+
+            if (node.getDepth() + node.getLowerBound() >= bound.get() - offset) {
+                break;  // nothing left can beat the best solution
+            }
+
+            if (isStale(depths, node)) {
+                continue;  // stale entry, reached again with fewer moves
+            }
+
+            if ((++expandedNodes & 255) == 0 && System.nanoTime() - deadline > 0) {
+                return best;
+            }
+
+            int mask = node.getState().moves();
+            for (int c = 0; mask != 0; c++, mask >>>= 1) {
+                if ((mask & 1) == 0) {
+                    continue;
+                }
+                SearchNode child = node.child(c);
+                FloodState state = child.getState();
+
+                if (state.isFinished()) {
+                    if (lower(bound, child.getDepth() + offset)) {
+                        best = child.path();
+                    }
+                    continue;
+                }
+
+                if (child.getDepth() + child.getLowerBound() >= bound.get() - offset) {
+                    continue;
+                }
+
+                if (isNew(depths, child)) {
+                    open.add(child);
+                }
+            }
+        }
+
+        optimal = true;
+        return best;
+    }
+
+    /**
+     * Returns true if a node was reached again with fewer moves since it was queued
+     */
+    private boolean isStale(HashMap<FloodState, Integer> depths, SearchNode node) {
+
+        if (table != null) {
+            int known = table.get(node.getState().getRegionHash());
+            return known != TranspositionTable.NOT_FOUND && known < node.getState().getSteps();
+        }
+        Integer known = depths.get(node.getState());
+        return known != null && known < node.getDepth();
+    }
+
+    /**
+     * Records a node, and returns true if its state was never reached with as few moves
+     */
+    private boolean isNew(HashMap<FloodState, Integer> depths, SearchNode node) {
+
+        if (table != null) {
+            return table.offer(node.getState().getRegionHash(), node.getState().getSteps());
+        }
+        Integer known = depths.get(node.getState());
+        if (known == null || node.getDepth() < known) {
+            depths.put(node.getState(), node.getDepth());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Lowers a shared bound to a new value, if it is smaller
+     *
+     * @return true if the bound was lowered
+     */
+    private static boolean lower(AtomicInteger bound, int value) {
+
+        int current = bound.get();
+        while (value < current) {
+            if (bound.compareAndSet(current, value)) {
+                return true;
+            }
+            current = bound.get();
+        }
+        return false;
+    }
+
+}
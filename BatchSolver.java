@@ -0,0 +1,352 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The class <b>BatchSolver</b> solves many boards at once, on all the cores, with a
+ * <b>ForkJoinPool</b>. The boards are split recursively between the workers. Each
+ * board is first given a greedy and beam search solution, then its exact search is
+ * split by first move: one A* search per first color, all pruning with the same
+ * shared bound, which is lowered as soon as one of them finds a better solution.
+ * They also share a lock-free <b>TranspositionTable</b>, so that a state reached
+ * from two first moves (by the same moves in another order) is only searched once.
+ *
+ * The results give the number of moves of each board, and the batch reports its
+ * throughput.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class BatchSolver {
+
+    private static final int BEAM_WIDTH = 64;
+    private static final int TABLE_CAPACITY = 1 << 18;
+
+    private ForkJoinPool pool;
+    private long timeBudget;
+    private long lastBatchNanos;
+    private int lastBatchSize;
+
+    /**
+     * The result of solving one board
+     */
+    public static class Result {
+
+        private int[] moves;
+        private boolean optimal;
+        private long nanos;
+        private long expandedNodes;
+
+        private Result(int[] moves, boolean optimal, long nanos, long expandedNodes) {
+            this.moves = moves;
+            this.optimal = optimal;
+            this.nanos = nanos;
+            this.expandedNodes = expandedNodes;
+        }
+
+        /**
+         * @return the colors to select, in order
+         */
+        public int[] getMoves() {
+            return moves;
+        }
+
+        /**
+         * @return the number of moves of the solution
+         */
+        public int getNumberOfMoves() {
+            return moves.length;
+        }
+
+        /**
+         * @return true if the solution was proven optimal within the time budget
+         */
+        public boolean isOptimal() {
+            return optimal;
+        }
+
+        /**
+         * @return the time spent on this board, in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return the number of nodes expanded by the exact searches
+         */
+        public long getExpandedNodes() {
+            return expandedNodes;
+        }
+    }
+
+    /**
+     * Constructor for a solver using every core
+     *
+     * @param timeBudget
+     *            the time budget of each board, in milliseconds
+     */
+    public BatchSolver(long timeBudget) {
+
+        this(Runtime.getRuntime().availableProcessors(), timeBudget);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param parallelism
+     *            the number of worker threads
+     * @param timeBudget
+     *            the time budget of each board, in milliseconds
+     */
+    public BatchSolver(int parallelism, long timeBudget) {
+
+        pool = new ForkJoinPool(Math.max(parallelism, 1));
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Builds boards with consecutive seeds
+     *
+     * @param count
+     *            the number of boards
+     * @param size
+     *            the size of the boards
+     * @param firstSeed
+     *            the seed of the first board
+     * @param torus
+     *            true to play on a torus
+     * @param diagonal
+     *            true to allow diagonal moves
+     * @return the boards
+     */
+    public static GameModel[] seededBoards(int count, int size, long firstSeed, boolean torus, boolean diagonal) {
+
+        return seededBoards(count, size, GameModel.NUMBER_OF_COLORS, firstSeed, torus, diagonal, new UniformGenerator());
+    }
+
+    /**
+     * Builds boards with consecutive seeds, from a generator
+     *
+     * @param count
+     *            the number of boards
+     * @param size
+     *            the size of the boards
+     * @param numberOfColors
+     *            the number of colors
+     * @param firstSeed
+     *            the seed of the first board
+     * @param torus
+     *            true to play on a torus
+     * @param diagonal
+     *            true to allow diagonal moves
+     * @param generator
+     *            the generator of the colors
+     * @return the boards
+     */
+    public static GameModel[] seededBoards(int count, int size, int numberOfColors, long firstSeed, boolean torus,
+                                           boolean diagonal, BoardGenerator generator) {
+
+        GameModel[] boards = new GameModel[count];
+        for (int i = 0; i < count; i++) {
+            boards[i] = new GameModel(size, numberOfColors, firstSeed + i, torus, diagonal, generator);
+        }
+        return boards;
+    }
+
+    /**
+     * Solves every board; the boards are not modified
+     *
+     * @param boards
+     *            the boards to solve
+     * @return the result of each board, in the same order
+     */
+    public Result[] solve(GameModel[] boards) {
+
+        Result[] results = new Result[boards.length];
+        long start = System.nanoTime();
+        pool.invoke(new BoardsTask(boards, results, 0, boards.length));
+        lastBatchNanos = System.nanoTime() - start;
+        lastBatchSize = boards.length;
+        return results;
+    }
+
+    /**
+     * Solves a single board, splitting its search between the workers
+     *
+     * @param board
+     *            the board to solve, which is not modified
+     * @return the result
+     */
+    public Result solve(GameModel board) {
+
+        return solve(new GameModel[]{ board })[0];
+    }
+
+    /**
+     * Returns the throughput of the last batch
+     *
+     * @return boards solved per second
+     */
+    public double getThroughput() {
+
+        if (lastBatchNanos == 0) {
+            return 0;
+        }
+        return lastBatchSize * 1e9 / lastBatchNanos;
+    }
+
+    /**
+     * Prints the number of moves of each board, then the throughput of the batch
+     *
+     * @param results
+     *            the results of the last batch
+     * @param out
+     *            where to print
+     */
+    public void report(Result[] results, PrintStream out) {
+
+        long moves = 0;
+        int optimal = 0;
+        for (int i = 0; i < results.length; i++) {
+            out.println("board " + i + ": " + results[i].getNumberOfMoves() + " moves"
+                + (results[i].isOptimal() ? " (optimal)" : "")
+                + ", " + results[i].getNanos() / 1000000 + " ms");
+            moves += results[i].getNumberOfMoves();
+            if (results[i].isOptimal()) {
+                optimal++;
+            }
+        }
+        out.println(results.length + " boards, " + optimal + " optimal, "
+            + String.format("%.2f", results.length == 0 ? 0.0 : (double) moves / results.length) + " moves on average, "
+            + String.format("%.1f", getThroughput()) + " boards/s on " + pool.getParallelism() + " threads");
+    }
+
+    /**
+     * Stops the worker threads
+     */
+    public void shutdown() {
+
+        pool.shutdown();
+    }
+
+    /**
+     * Solves one board: first solution, then one exact search per first move
+     */
+    private Result solveBoard(GameModel board) {
+
+        long begin = System.nanoTime();
+        long deadline = BeamSearchSolver.deadline(timeBudget);
+
+        FloodState start = new FloodState(board);
+
+        int[] best = new GreedySolver().solve(start);
+        int[] beam = new BeamSearchSolver(BEAM_WIDTH, timeBudget / 4).solve(start);
+        if (beam.length < best.length) {
+            best = beam;
+        }
+
+        AtomicInteger bound = new AtomicInteger(best.length);
+        TranspositionTable table = new TranspositionTable(TABLE_CAPACITY, TranspositionTable.REPLACE_DEEPER);
+        ArrayList<FirstMoveTask> tasks = new ArrayList<FirstMoveTask>();
+
+        int mask = start.moves();
+        for (int c = 0; mask != 0; c++, mask >>>= 1) {
+            if ((mask & 1) != 0) {
+                tasks.add(new FirstMoveTask(start, c, deadline, bound, table));
+            }
+        }
+
+        boolean optimal = true;
+        long expandedNodes = 0;
+        ForkJoinTask.invokeAll(tasks);
+        for (FirstMoveTask task : tasks) {
+            int[] moves = task.join();
+            optimal &= task.optimal;
+            expandedNodes += task.expandedNodes;
+            if (moves != null && moves.length < best.length) {
+                best = moves;
+            }
+        }
+
+        return new Result(best, optimal, System.nanoTime() - begin, expandedNodes);
+    }
+
+    /**
+     * Task solving the boards in [from, to), split in halves
+     */
+    private class BoardsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private GameModel[] boards;
+        private Result[] results;
+        private int from, to;
+
+        BoardsTask(GameModel[] boards, Result[] results, int from, int to) {
+            this.boards = boards;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    results[from] = solveBoard(boards[from]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BoardsTask(boards, results, from, middle),
+                      new BoardsTask(boards, results, middle, to));
+        }
+    }
+
+    /**
+     * Task searching the subtree of one first move, with the shared bound
+     */
+    private static class FirstMoveTask extends RecursiveTask<int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private FloodState start;
+        private int color;
+        private long deadline;
+        private AtomicInteger bound;
+        private TranspositionTable table;
+        private boolean optimal;
+        private long expandedNodes;
+
+        FirstMoveTask(FloodState start, int color, long deadline, AtomicInteger bound, TranspositionTable table) {
+            this.start = start;
+            this.color = color;
+            this.deadline = deadline;
+            this.bound = bound;
+            this.table = table;
+        }
+
+        protected int[] compute() {
+            FloodState next = start.copy();
+            next.apply(color);
+
+            AStarSolver solver = new AStarSolver(Long.MAX_VALUE, table);
+            int[] tail = solver.solve(next, null, deadline, bound, 1);
+            optimal = solver.isOptimal();
+            expandedNodes = solver.getExpandedNodes();
+
+            if (tail == null) {
+                return null;
+            }
+            int[] moves = new int[tail.length + 1];
+            moves[0] = color;
+            System.arraycopy(tail, 0, moves, 1, tail.length);
+            return moves;
+        }
+    }
+
+}
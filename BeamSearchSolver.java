@@ -0,0 +1,147 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * The class <b>BeamSearchSolver</b> is a <b>Solver</b> exploring the game level by
+ * level, keeping only the best states of each level (the beam). States are ranked
+ * by their lower bound on the moves left, then by captured area. Equal states
+ * reached by different moves are kept once.
+ *
+ * If the time budget runs out, the best state of the beam is finished greedily.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class BeamSearchSolver implements Solver {
+
+    private int width;
+    private long timeBudget;
+
+    /**
+     * Comparator ranking the nodes of a level, best first
+     */
+    private static final Comparator<SearchNode> BEST_FIRST = new Comparator<SearchNode>() {
+        public int compare(SearchNode a, SearchNode b) {
+            int bound = Integer.compare(a.getLowerBound(), b.getLowerBound());
+            if (bound != 0) {
+                return bound;
+            }
+            return Integer.compare(b.getState().getCapturedDots(), a.getState().getCapturedDots());
+        }
+    };
+
+    /**
+     * Constructor for a solver without time budget
+     *
+     * @param width
+     *            the number of states kept at each level
+     */
+    public BeamSearchSolver(int width) {
+
+        this(width, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param width
+     *            the number of states kept at each level
+     * @param timeBudget
+     *            the time budget, in milliseconds
+     */
+    public BeamSearchSolver(int width, long timeBudget) {
+
+        this.width = Math.max(width, 1);
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Computes a sequence of moves finishing the game
+     *
+     * @param model
+     *            the model of the game, which is not modified
+     * @return the colors to select, in order
+     */
+    public int[] solve(GameModel model) {
+
+        return solve(new FloodState(model));
+    }
+
+    /**
+     * Computes a sequence of moves finishing the game from a given state
+     *
+     * @param start
+     *            the state to start from, which is not modified
+     * @return the colors to select, in order
+     */
+    public int[] solve(FloodState start) {
+
+        long deadline = deadline(timeBudget);
+
+        ArrayList<SearchNode> level = new ArrayList<SearchNode>();
+        level.add(new SearchNode(start.copy()));
+
+        while (true) {
+
+            if (level.get(0).getState().isFinished()) {
+                return level.get(0).path();
+            }
+
+            HashMap<FloodState, SearchNode> next = new HashMap<FloodState, SearchNode>();
+
+            for (SearchNode node : level) {
+                int mask = node.getState().moves();
+                for (int c = 0; mask != 0; c++, mask >>>= 1) {
+                    if ((mask & 1) == 0) {
+                        continue;
+                    }
+                    SearchNode child = node.child(c);
+                    if (child.getState().isFinished()) {
+                        return child.path();
+                    }
+                    if (!next.containsKey(child.getState())) {
+                        next.put(child.getState(), child);
+                    }
+                }
+            }
+
+            level = new ArrayList<SearchNode>(next.values());
+            Collections.sort(level, BEST_FIRST);
+            if (level.size() > width) {
+                level = new ArrayList<SearchNode>(level.subList(0, width));
+            }
+
+            if (System.nanoTime() - deadline > 0) {
+                return finishGreedily(level.get(0));
+            }
+        }
+    }
+
+    /**
+     * Completes the moves of a node with the greedy solver
+     */
+    private static int[] finishGreedily(SearchNode node) {
+
+        int[] head = node.path();
+        int[] tail = new GreedySolver().solve(node.getState());
+        int[] moves = new int[head.length + tail.length];
+        System.arraycopy(head, 0, moves, 0, head.length);
+        System.arraycopy(tail, 0, moves, head.length, tail.length);
+        return moves;
+    }
+
+    /**
+     * Converts a time budget in milliseconds into a deadline for System.nanoTime
+     */
+    static long deadline(long timeBudget) {
+
+        long now = System.nanoTime();
+        if (timeBudget >= (Long.MAX_VALUE - now) / 1000000) {
+            return now + Long.MAX_VALUE / 2;
+        }
+        return now + timeBudget * 1000000;
+    }
+
+}
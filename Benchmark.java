@@ -0,0 +1,379 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/**
+ * The class <b>Benchmark</b> measures the hot paths of the game, to catch
+ * regressions and to compare board backends:
+ * - flood: whole games played with the engine, in the four modes (plane or torus,
+ *   orthogonal or diagonal); one operation is one move
+ * - flood bitboard: the same games, played on a <b>BitboardState</b>
+ * - flood vector: the same games, on a <b>BitboardState</b> with the vector kernel
+ *   (java --add-modules jdk.incubator.vector Benchmark, otherwise the scalar kernel)
+ * - clone and toString of a model in the middle of a game; clone packed clones it
+ *   on a <b>PackedBoard</b> for comparison, and clone and move plays one move on
+ *   the clone, which copies the tiles it writes
+ * - save and load of a model with GameFile, in the compact and in the mapped format
+ * - push and pop on a GenericLinkedStack, and on an IntStack for comparison
+ *
+ * Every benchmark is run for each board size and number of colors: it is first
+ * warmed up, then run for a fixed time, and reports the operations per second and
+ * the bytes allocated per operation (measured on the current thread, with
+ * com.sun.management.ThreadMXBean).
+ *
+ * Usage: java Benchmark [sizes] [filter] [colors], for instance
+ * java Benchmark 14,100,500 flood 6,16
+ * runs the benchmarks whose name contains "flood" on boards of size 14, 100 and 500,
+ * with 6 and then 16 colors. A rectangular board is given as WIDTHxHEIGHT, for
+ * instance 10x10000.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class Benchmark {
+
+    public static final String[] DEFAULT_SIZES = { "14", "100", "500", "2000" };
+    public static final int[] DEFAULT_COLORS = { GameModel.NUMBER_OF_COLORS };
+
+    private static final long WARMUP_MILLIS  = 500;
+    private static final long MEASURE_MILLIS = 1000;
+    private static final long SEED = 42;
+    private static final int STACK_OPERATIONS = 1000;
+
+    // a mapping is only released when its buffer is collected: the mapped
+    // benchmarks collect the garbage every so often, outside of the measure
+    private static final int MAPPINGS_BEFORE_GC = 256;
+
+    private static final String[] MODES = { "plane/orthogonal", "plane/diagonal", "torus/orthogonal", "torus/diagonal" };
+
+    private static com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static Object sink;
+
+    /**
+     * A benchmark: prepare is not measured, run is, and returns the number of
+     * operations it did
+     */
+    private abstract static class Case {
+
+        private String name;
+
+        Case(String name) {
+            this.name = name;
+        }
+
+        void prepare() throws Exception {
+        }
+
+        abstract long run() throws Exception;
+    }
+
+    /**
+     * Runs the benchmarks
+     *
+     * @param args
+     *            the board sizes, separated by commas, then a filter on the names,
+     *            then the numbers of colors, separated by commas
+     */
+    public static void main(String[] args) throws Exception {
+
+        String[] sizes = args.length >= 1 ? args[0].split(",") : DEFAULT_SIZES;
+        String filter = args.length >= 2 ? args[1] : "";
+        int[] colors = args.length >= 3 ? parseList(args[2]) : DEFAULT_COLORS;
+
+        System.out.println(String.format("%-34s %10s %6s %14s %14s", "benchmark", "size", "colors", "ops/s", "bytes/op"));
+        for (String size : sizes) {
+            String[] dimensions = size.trim().split("x");
+            int width = Integer.parseInt(dimensions[0]);
+            int height = dimensions.length > 1 ? Integer.parseInt(dimensions[1]) : width;
+            for (int numberOfColors : colors) {
+                for (Case c : cases(width, height, numberOfColors)) {
+                    if (c.name.contains(filter)) {
+                        measure(c, size.trim(), numberOfColors, System.out);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses numbers separated by commas
+     */
+    private static int[] parseList(String list) {
+
+        String[] values = list.split(",");
+        int[] numbers = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            numbers[i] = Integer.parseInt(values[i].trim());
+        }
+        return numbers;
+    }
+
+    /**
+     * Builds the benchmarks of a board size and number of colors
+     */
+    private static ArrayList<Case> cases(final int width, final int height, final int numberOfColors)
+        throws IOException {
+
+        ArrayList<Case> cases = new ArrayList<Case>();
+
+        for (int m = 0; m < MODES.length; m++) {
+            final boolean torus = m >= 2;
+            final boolean diagonal = m % 2 == 1;
+            cases.add(new Case("flood " + MODES[m]) {
+                private GameModel model;
+                void prepare() {
+                    model = new GameModel(width, height, numberOfColors, SEED, torus, diagonal, new UniformGenerator());
+                }
+                long run() {
+                    return playGame(model);
+                }
+            });
+            cases.add(new Case("flood bitboard " + MODES[m]) {
+                private GameModel model;
+                void prepare() {
+                    model = new GameModel(width, height, numberOfColors, SEED, torus, diagonal, new UniformGenerator());
+                }
+                long run() {
+                    return playGame(new BitboardState(model), numberOfColors);
+                }
+            });
+            cases.add(new Case("flood vector " + MODES[m]) {
+                private GameModel model;
+                void prepare() {
+                    model = new GameModel(width, height, numberOfColors, SEED, torus, diagonal, new UniformGenerator());
+                }
+                long run() {
+                    return playGame(new BitboardState(model, BitboardKernel.getVectorKernel()), numberOfColors);
+                }
+            });
+        }
+
+        final GameModel halfPlayed = new GameModel(width, height, numberOfColors, SEED, false, false,
+                                                   new UniformGenerator());
+        playMoves(halfPlayed, Math.max(width, height) / 2);
+
+        cases.add(new Case("clone") {
+            long run() throws CloneNotSupportedException {
+                sink = halfPlayed.clone();
+                return 1;
+            }
+        });
+
+        final GameModel halfPlayedPacked = new GameModel(packedCopy(halfPlayed.getBoard()), halfPlayed.getNumberOfSteps(),
+                                                         halfPlayed.getCurrentSelectedColor(), false, false,
+                                                         numberOfColors);
+
+        cases.add(new Case("clone packed") {
+            long run() throws CloneNotSupportedException {
+                sink = halfPlayedPacked.clone();
+                return 1;
+            }
+        });
+
+        cases.add(new Case("clone and move") {
+            long run() throws CloneNotSupportedException {
+                GameModel model = halfPlayed.clone();
+                new GameEngine(model).applyMove((model.getCurrentSelectedColor() + 1) % numberOfColors);
+                sink = model;
+                return 1;
+            }
+        });
+
+        cases.add(new Case("toString") {
+            long run() {
+                sink = halfPlayed.toString();
+                return 1;
+            }
+        });
+
+        final File file = File.createTempFile("floodit", ".dat");
+        final File mappedFile = File.createTempFile("floodit", ".map");
+        file.deleteOnExit();
+        mappedFile.deleteOnExit();
+
+        cases.add(new Case("save") {
+            long run() throws IOException {
+                GameFile.save(halfPlayed, file);
+                return 1;
+            }
+        });
+
+        cases.add(new Case("load") {
+            void prepare() throws IOException {
+                if (file.length() == 0) {
+                    GameFile.save(halfPlayed, file);
+                }
+            }
+            long run() throws IOException {
+                sink = GameFile.load(file);
+                return 1;
+            }
+        });
+
+        cases.add(new Case("save mapped") {
+            private GameModel model;
+            private int count;
+            void prepare() throws CloneNotSupportedException {
+                if (++count % MAPPINGS_BEFORE_GC == 0) {
+                    System.gc();
+                }
+                model = halfPlayed.clone();
+            }
+            long run() throws IOException {
+                GameFile.saveMapped(model, mappedFile);
+                ((MappedBoard) model.getBoard()).close();
+                return 1;
+            }
+        });
+
+        cases.add(new Case("load mapped") {
+            private int count;
+            void prepare() throws Exception {
+                if (++count % MAPPINGS_BEFORE_GC == 0) {
+                    System.gc();
+                }
+                if (mappedFile.length() == 0) {
+                    GameModel model = halfPlayed.clone();
+                    GameFile.saveMapped(model, mappedFile);
+                    ((MappedBoard) model.getBoard()).close();
+                }
+            }
+            long run() throws IOException {
+                GameModel model = GameFile.loadMapped(mappedFile);
+                ((MappedBoard) model.getBoard()).close();
+                return 1;
+            }
+        });
+
+        cases.add(new Case("GenericLinkedStack push/pop") {
+            long run() {
+                GenericLinkedStack<Integer> stack = new GenericLinkedStack<Integer>();
+                for (int i = 0; i < STACK_OPERATIONS; i++) {
+                    stack.push(i);
+                }
+                while (!stack.isEmpty()) {
+                    sink = stack.pop();
+                }
+                return 2 * STACK_OPERATIONS;
+            }
+        });
+
+        cases.add(new Case("IntStack push/pop") {
+            private IntStack stack = new IntStack();
+            long run() {
+                long sum = 0;
+                for (int i = 0; i < STACK_OPERATIONS; i++) {
+                    stack.pushInt(i);
+                }
+                while (!stack.isEmpty()) {
+                    sum += stack.popInt();
+                }
+                sink = sum;
+                return 2 * STACK_OPERATIONS;
+            }
+        });
+
+        return cases;
+    }
+
+    /**
+     * Warms a benchmark up, then measures it and prints the result
+     */
+    private static void measure(Case c, String size, int numberOfColors, PrintStream out) throws Exception {
+
+        run(c, WARMUP_MILLIS);
+        long[] result = run(c, MEASURE_MILLIS);
+
+        long operations = Math.max(result[0], 1);
+        out.println(String.format("%-34s %10s %6d %14.1f %14.1f", c.name, size, numberOfColors,
+            operations * 1e9 / result[1], (double) result[2] / operations));
+    }
+
+    /**
+     * Runs a benchmark for at least the given time, and at least once
+     *
+     * @return the number of operations, the time spent in run in nanoseconds,
+     *         and the bytes allocated by run
+     */
+    private static long[] run(Case c, long millis) throws Exception {
+
+        long thread = Thread.currentThread().getId();
+        long operations = 0;
+        long nanos = 0;
+        long bytes = 0;
+
+        long end = System.nanoTime() + millis * 1000000L;
+        do {
+            c.prepare();
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            operations += c.run();
+            nanos += System.nanoTime() - start;
+            bytes += threads.getThreadAllocatedBytes(thread) - allocated;
+        } while (System.nanoTime() < end);
+
+        return new long[]{ operations, nanos, bytes };
+    }
+
+    /**
+     * Plays a whole game, selecting the colors in turn
+     *
+     * @return the number of moves
+     */
+    private static long playGame(GameModel model) {
+
+        GameEngine engine = new GameEngine(model);
+        long moves = 0;
+        while (!engine.isFinished()) {
+            engine.applyMove((model.getCurrentSelectedColor() + 1) % model.getNumberOfColors());
+            moves++;
+        }
+        return moves;
+    }
+
+    /**
+     * Plays a whole game on a bitboard, selecting the colors in turn
+     *
+     * @return the number of moves
+     */
+    private static long playGame(BitboardState state, int numberOfColors) {
+
+        long moves = 0;
+        while (!state.isFinished()) {
+            state.apply((state.getColor() + 1) % numberOfColors);
+            moves++;
+        }
+        return moves;
+    }
+
+    /**
+     * Copies a board on a PackedBoard
+     */
+    private static Board packedCopy(Board board) {
+
+        PackedBoard boardCopy = new PackedBoard(board.getWidth(), board.getHeight());
+        for (int i = 0; i < board.length(); i++) {
+            boardCopy.setColor(i, board.getColor(i));
+        }
+        for (int w = 0; w < board.getCapturedWordCount(); w++) {
+            boardCopy.setCapturedWord(w, board.getCapturedWord(w));
+        }
+        return boardCopy;
+    }
+
+    /**
+     * Plays some moves, selecting the colors in turn
+     */
+    private static void playMoves(GameModel model, int moves) {
+
+        GameEngine engine = new GameEngine(model);
+        for (int i = 0; i < moves && !engine.isFinished(); i++) {
+            engine.applyMove((model.getCurrentSelectedColor() + 1) % model.getNumberOfColors());
+        }
+    }
+
+}
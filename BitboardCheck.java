@@ -0,0 +1,161 @@
+import java.util.Random;
+
+/**
+ * The class <b>BitboardCheck</b> checks <b>BitboardState</b> against the reference
+ * flood of <b>GameEngine</b>: it plays random moves on random boards, in the four
+ * modes (plane or torus, orthogonal or diagonal), with the scalar and the vector
+ * kernels, and compares the gain of every color, the captured dots and the end of
+ * the game after each move. The boards are up to MAX_WIDTH dots wide, so that the
+ * vector kernel works on several vectors per row.
+ *
+ * Usage: java BitboardCheck [games] [seed]. The vector kernel is only checked when
+ * the Vector API is available (java --add-modules jdk.incubator.vector BitboardCheck),
+ * otherwise both kernels are the scalar one. The first difference is printed, and
+ * the virtual machine exits with status 1.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class BitboardCheck {
+
+    public static final int DEFAULT_GAMES = 400;
+    public static final long DEFAULT_SEED = 1;
+
+    private static final int MAX_WIDTH  = 1100;
+    private static final int MAX_HEIGHT = 40;
+    private static final int MAX_MOVES  = 60;
+
+    private static final String[] MODES = { "plane/orthogonal", "plane/diagonal", "torus/orthogonal", "torus/diagonal" };
+
+    /**
+     * Runs the check
+     *
+     * @param args
+     *            the number of games in each mode, then the seed of the boards
+     *            and moves
+     */
+    public static void main(String[] args) {
+
+        int games = args.length >= 1 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        long seed = args.length >= 2 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+
+        BitboardKernel vector = BitboardKernel.getVectorKernel();
+        System.out.println("vector kernel: " + (vector.isVector() ? "Vector API" : "scalar, the Vector API is not available"));
+
+        Random random = new Random(seed);
+        for (int m = 0; m < MODES.length; m++) {
+            for (int g = 0; g < games; g++) {
+                String difference = play(random, m >= 2, m % 2 == 1, vector);
+                if (difference != null) {
+                    System.out.println(MODES[m] + ", game " + g + ": " + difference);
+                    System.exit(1);
+                }
+            }
+            System.out.println(MODES[m] + ": " + games + " games ok");
+        }
+    }
+
+    /**
+     * Plays random moves on a random board with the engine and with both kernels
+     *
+     * @return a description of the first difference, or null if there is none
+     */
+    private static String play(Random random, boolean torus, boolean diagonal, BitboardKernel vector) {
+
+        // narrow boards are drawn more often: they have the most edge cases
+        int width = 1 + random.nextInt(random.nextInt(3) == 0 ? MAX_WIDTH : 70);
+        int height = 1 + random.nextInt(MAX_HEIGHT);
+        int numberOfColors = 2 + random.nextInt(GameModel.NUMBER_OF_COLORS);
+        GameModel model = new GameModel(width, height, numberOfColors, random.nextLong(), torus, diagonal,
+            new UniformGenerator());
+        GameEngine engine = new GameEngine(model);
+        if (random.nextBoolean()) {
+            engine.selectInitialDot(random.nextInt(height), random.nextInt(width));
+        } else {
+            engine.selectInitialDot(0, 0);
+        }
+
+        String board = width + "x" + height + ", " + numberOfColors + " colors";
+        BitboardState[] states = { new BitboardState(model, BitboardKernel.getScalarKernel()),
+                                   new BitboardState(model, vector) };
+        String[] names = { "scalar", "vector" };
+
+        for (int step = 0; step <= MAX_MOVES; step++) {
+            for (int k = 0; k < states.length; k++) {
+                String difference = compare(states[k], model, numberOfColors);
+                if (difference != null) {
+                    return board + ", " + names[k] + " kernel, move " + step + ": " + difference;
+                }
+            }
+            if (engine.isFinished() || step == MAX_MOVES) {
+                return null;
+            }
+            int color = random.nextInt(numberOfColors);
+            engine.applyMove(color);
+            for (int k = 0; k < states.length; k++) {
+                states[k].apply(color);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compares a state with the model the engine plays on
+     *
+     * @return a description of the difference, or null if there is none
+     */
+    private static String compare(BitboardState state, GameModel model, int numberOfColors) {
+
+        if (state.isFinished() != model.isFinished()) {
+            return "finished " + state.isFinished() + " instead of " + model.isFinished();
+        }
+        int captured = 0;
+        for (int x = 0; x < model.getHeight(); x++) {
+            for (int y = 0; y < model.getWidth(); y++) {
+                if (state.isCaptured(x, y) != model.isCaptured(x, y)) {
+                    return "dot (" + x + "," + y + ") captured " + state.isCaptured(x, y);
+                }
+                if (model.isCaptured(x, y)) {
+                    captured++;
+                }
+            }
+        }
+        if (state.getCapturedDots() != captured) {
+            return state.getCapturedDots() + " captured dots instead of " + captured;
+        }
+        if (model.isFinished()) {
+            return null;
+        }
+        for (int c = 0; c < numberOfColors; c++) {
+            GameModel next;
+            try {
+                next = model.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
+            new GameEngine(next).applyMove(c);
+            int gain = countCaptured(next) - captured;
+            if (state.gain(c) != gain) {
+                return "gain " + state.gain(c) + " instead of " + gain + " for color " + c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts the captured dots of a model
+     */
+    private static int countCaptured(GameModel model) {
+
+        int captured = 0;
+        for (int x = 0; x < model.getHeight(); x++) {
+            for (int y = 0; y < model.getWidth(); y++) {
+                if (model.isCaptured(x, y)) {
+                    captured++;
+                }
+            }
+        }
+        return captured;
+    }
+
+}
@@ -0,0 +1,241 @@
+/**
+ * The class <b>BitboardKernel</b> holds the operations a <b>BitboardState</b> applies
+ * to the longs of its rows: masking, shifting by one bit across longs, and occluded
+ * fills. This class does them one long at a time; <b>VectorBitboardKernel</b> does
+ * them with the Vector API, several longs per instruction, which pays off on wide
+ * boards.
+ *
+ * The Vector API is the incubator module jdk.incubator.vector: it is only used if
+ * the module was added to the virtual machine (java --add-modules jdk.incubator.vector),
+ * and VectorBitboardKernel was compiled from the source directory vector, otherwise
+ * getVectorKernel falls back to this scalar kernel.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class BitboardKernel {
+
+    public static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final BitboardKernel SCALAR = new BitboardKernel();
+    private static final BitboardKernel VECTOR = loadVectorKernel();
+
+    /**
+     * Returns the scalar kernel
+     *
+     * @return the kernel working one long at a time
+     */
+    public static BitboardKernel getScalarKernel() {
+
+        return SCALAR;
+    }
+
+    /**
+     * Returns the vector kernel, or the scalar kernel if the Vector API is not available
+     *
+     * @return the fastest kernel available
+     */
+    public static BitboardKernel getVectorKernel() {
+
+        return VECTOR;
+    }
+
+    /**
+     * Loads the vector kernel by name, so that this class does not depend on the
+     * incubator module
+     */
+    private static BitboardKernel loadVectorKernel() {
+
+        if (!ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            return SCALAR;
+        }
+        try {
+            return (BitboardKernel) Class.forName("VectorBitboardKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;
+        }
+    }
+
+    /**
+     * Returns true if the kernel uses the Vector API
+     *
+     * @return false for the scalar kernel
+     */
+    public boolean isVector() {
+
+        return false;
+    }
+
+    /**
+     * Returns true if some bit of a is not in b, on n longs
+     *
+     * @param a
+     *            the first array
+     * @param aOffset
+     *            the first long of a
+     * @param b
+     *            the second array
+     * @param bOffset
+     *            the first long of b
+     * @param n
+     *            the number of longs
+     * @return true if a & ~b is not zero
+     */
+    public boolean anyAndNot(long[] a, int aOffset, long[] b, int bOffset, int n) {
+
+        long bits = 0;
+        for (int w = 0; w < n; w++) {
+            bits |= a[aOffset + w] & ~b[bOffset + w];
+        }
+        return bits != 0;
+    }
+
+    /**
+     * Adds n longs of src to out
+     *
+     * @param src
+     *            the bits to add
+     * @param srcOffset
+     *            the first long of src
+     * @param out
+     *            the n longs receiving the bits
+     * @param n
+     *            the number of longs
+     */
+    public void or(long[] src, int srcOffset, long[] out, int n) {
+
+        for (int w = 0; w < n; w++) {
+            out[w] |= src[srcOffset + w];
+        }
+    }
+
+    /**
+     * Adds n longs of src to out, shifted by one bit towards the higher bits: bit 63
+     * of a long moves to bit 0 of the next one, and bit 0 of the first long is 0
+     *
+     * @param src
+     *            the bits to shift
+     * @param srcOffset
+     *            the first long of src
+     * @param out
+     *            the n longs receiving the bits
+     * @param n
+     *            the number of longs
+     */
+    public void orShiftedUp(long[] src, int srcOffset, long[] out, int n) {
+
+        for (int w = n - 1; w > 0; w--) {
+            out[w] |= (src[srcOffset + w] << 1) | (src[srcOffset + w - 1] >>> 63);
+        }
+        out[0] |= src[srcOffset] << 1;
+    }
+
+    /**
+     * Adds n longs of src to out, shifted by one bit towards the lower bits: bit 0
+     * of a long moves to bit 63 of the previous one, and bit 63 of the last long is 0
+     *
+     * @param src
+     *            the bits to shift
+     * @param srcOffset
+     *            the first long of src
+     * @param out
+     *            the n longs receiving the bits
+     * @param n
+     *            the number of longs
+     */
+    public void orShiftedDown(long[] src, int srcOffset, long[] out, int n) {
+
+        for (int w = 0; w < n - 1; w++) {
+            out[w] |= (src[srcOffset + w] >>> 1) | (src[srcOffset + w + 1] << 63);
+        }
+        out[n - 1] |= src[srcOffset + n - 1] >>> 1;
+    }
+
+    /**
+     * Keeps in out the bits of mask that are not in region, on n longs
+     *
+     * @param out
+     *            the n longs to mask
+     * @param mask
+     *            the bits to keep
+     * @param region
+     *            the bits to remove
+     * @param offset
+     *            the first long of mask and region
+     * @param n
+     *            the number of longs
+     * @return true if some bit is left in out
+     */
+    public boolean maskFree(long[] out, long[] mask, long[] region, int offset, int n) {
+
+        long bits = 0;
+        for (int w = 0; w < n; w++) {
+            out[w] &= mask[offset + w] & ~region[offset + w];
+            bits |= out[w];
+        }
+        return bits != 0;
+    }
+
+    /**
+     * Fills each of the n longs of seed: its bits spread both ways through the
+     * consecutive bits of mask or region, without crossing to the next long
+     *
+     * @param seed
+     *            the n longs to fill
+     * @param mask
+     *            the bits to fill through
+     * @param region
+     *            other bits to fill through
+     * @param offset
+     *            the first long of mask and region
+     * @param n
+     *            the number of longs
+     */
+    public void fill(long[] seed, long[] mask, long[] region, int offset, int n) {
+
+        for (int w = 0; w < n; w++) {
+            long open = mask[offset + w] | region[offset + w];
+            seed[w] = fillUp(seed[w], open) | fillDown(seed[w], open);
+        }
+    }
+
+    /**
+     * Occluded fill towards the higher bits: the bits of g spread through the
+     * consecutive bits of open above them
+     */
+    static long fillUp(long g, long open) {
+
+        g |= open & (g << 1);
+        open &= open << 1;
+        g |= open & (g << 2);
+        open &= open << 2;
+        g |= open & (g << 4);
+        open &= open << 4;
+        g |= open & (g << 8);
+        open &= open << 8;
+        g |= open & (g << 16);
+        open &= open << 16;
+        g |= open & (g << 32);
+        return g;
+    }
+
+    /**
+     * Occluded fill towards the lower bits
+     */
+    static long fillDown(long g, long open) {
+
+        g |= open & (g >>> 1);
+        open &= open >>> 1;
+        g |= open & (g >>> 2);
+        open &= open >>> 2;
+        g |= open & (g >>> 4);
+        open &= open >>> 4;
+        g |= open & (g >>> 8);
+        open &= open >>> 8;
+        g |= open & (g >>> 16);
+        open &= open >>> 16;
+        g |= open & (g >>> 32);
+        return g;
+    }
+
+}
@@ -0,0 +1,500 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>BitboardState</b> is a flood-fill engine working on bitboards, 64
+ * dots at a time. It plays the same moves as <b>FloodState</b>, but instead of a
+ * graph of components it keeps one bitboard per color, and the captured bitboard.
+ *
+ * A bitboard stores each row of the board in (width + 63) / 64 longs: the dot at
+ * column y of a row is bit y % 64 of long y / 64 of that row. Selecting a color
+ * dilates the captured region by one dot with shifts (left and right in a row,
+ * the rows above and below, and their shifts in diagonal mode), masked by the
+ * bitboard of the color, until nothing changes. In a row, the dilation is done
+ * with occluded fills, which cross a whole long in six steps. On a torus, the
+ * shifts of a row are rotations of its width bits, and the first and last rows
+ * are neighbours.
+ *
+ * The color bitboards only depend on the initial colors, so they are shared by
+ * all the copies of a state; a copy only holds the captured bitboard.
+ *
+ * The operations on the longs of a row are done by a <b>BitboardKernel</b>: the
+ * scalar kernel by default, or the vector kernel, which uses the Vector API when
+ * it is available and pays off on boards several hundred dots wide.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class BitboardState {
+
+    private int width;
+    private int height;
+    private int wordsPerRow;
+    private long lastWordMask;     // the bits of the last long of a row that are on the board
+    private boolean torusMode;
+    private boolean diagonalMode;
+    private int numberOfColors;
+    private BitboardKernel kernel;
+
+    private long[][] colorMasks;   // shared: the free dots of each color
+    private long[] captured;
+    private int color;
+    private int capturedDots;
+    private int steps;
+
+    // work arrays of flood and moves, allocated on first use and not copied
+    private long[] grown;
+    private int[] queue;
+    private boolean[] queued;
+
+    /**
+     * Constructor used for initializing a state from the current state of a model.
+     * If the game has not started yet, it starts from the dot (0,0), as the engine does.
+     *
+     * @param model
+     *            the model of the game
+     */
+    public BitboardState(GameModel model) {
+
+        this(model, BitboardKernel.getScalarKernel());
+    }
+
+    /**
+     * Constructor used for initializing a state from the current state of a model,
+     * with a given kernel
+     *
+     * @param model
+     *            the model of the game
+     * @param kernel
+     *            the kernel doing the operations on the rows
+     */
+    public BitboardState(GameModel model, BitboardKernel kernel) {
+
+        this.kernel = kernel;
+        Board board = model.getBoard();
+        width = board.getWidth();
+        height = board.getHeight();
+        wordsPerRow = (width + 63) >>> 6;
+        lastWordMask = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1;
+        torusMode = model.isTorusMode();
+        diagonalMode = model.isDiagonalMode();
+        numberOfColors = model.getNumberOfColors();
+
+        colorMasks = new long[numberOfColors][height * wordsPerRow];
+        captured = new long[height * wordsPerRow];
+        for (int x = 0; x < height; x++) {
+            for (int y = 0; y < width; y++) {
+                int index = board.index(x, y);
+                int bit = x * wordsPerRow + (y >>> 6);
+                if (board.isCaptured(index)) {
+                    captured[bit] |= 1L << y;
+                    capturedDots++;
+                } else {
+                    colorMasks[board.getColor(index)][bit] |= 1L << y;
+                }
+            }
+        }
+
+        color = model.getCurrentSelectedColor();
+        steps = Math.max(model.getNumberOfSteps(), 0);
+
+        if (model.getNumberOfSteps() < 0) {
+            color = board.getColor(0);
+            captured[0] |= 1L;
+            capturedDots++;
+            capturedDots += flood(captured, colorMasks[color]);
+        }
+    }
+
+    /**
+     * Copy constructor
+     */
+    private BitboardState(BitboardState other) {
+
+        width = other.width;
+        height = other.height;
+        wordsPerRow = other.wordsPerRow;
+        lastWordMask = other.lastWordMask;
+        torusMode = other.torusMode;
+        diagonalMode = other.diagonalMode;
+        numberOfColors = other.numberOfColors;
+        kernel = other.kernel;
+        colorMasks = other.colorMasks;
+        captured = other.captured.clone();
+        color = other.color;
+        capturedDots = other.capturedDots;
+        steps = other.steps;
+    }
+
+    /**
+     * Copies the state; the copy shares the color bitboards but nothing else
+     *
+     * @return a copy of this state
+     */
+    public BitboardState copy() {
+
+        return new BitboardState(this);
+    }
+
+    /**
+     * Getter method for the kernel
+     *
+     * @return kernel
+     */
+    public BitboardKernel getKernel() {
+
+        return kernel;
+    }
+
+    /**
+     * Getter method for the current color
+     *
+     * @return color
+     */
+    public int getColor() {
+
+        return color;
+    }
+
+    /**
+     * Getter method for the number of captured dots
+     *
+     * @return capturedDots
+     */
+    public int getCapturedDots() {
+
+        return capturedDots;
+    }
+
+    /**
+     * Getter method for the number of steps
+     *
+     * @return steps
+     */
+    public int getSteps() {
+
+        return steps;
+    }
+
+    /**
+     * Returns true iff every dot is captured
+     *
+     * @return true if the game is finished
+     */
+    public boolean isFinished() {
+
+        return capturedDots == width * height;
+    }
+
+    /**
+     * Returns true if a dot is captured
+     *
+     * @param x
+     *            the row of the dot
+     * @param y
+     *            the column of the dot
+     * @return true if the dot is captured
+     */
+    public boolean isCaptured(int x, int y) {
+
+        return (captured[x * wordsPerRow + (y >>> 6)] & (1L << y)) != 0;
+    }
+
+    /**
+     * Returns the colors worth selecting, as a bitmask: the colors of the free dots
+     * next to the captured region, except the current color. If there is none,
+     * every other color.
+     *
+     * @return a bitmask of the colors to try, 0 if the game is finished
+     */
+    public int moves() {
+
+        if (isFinished()) {
+            return 0;
+        }
+
+        allocateWorkArrays();
+        int mask = 0;
+
+        for (int x = 0; x < height; x++) {
+            Arrays.fill(grown, 0L);
+            dilateRow(captured, x, grown);
+            int row = x * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                long free = grown[w] & ~captured[row + w];
+                if (free == 0) {
+                    continue;
+                }
+                for (int c = 0; c < numberOfColors; c++) {
+                    if ((free & colorMasks[c][row + w]) != 0) {
+                        mask |= 1 << c;
+                    }
+                }
+            }
+        }
+
+        if (color >= 0) {
+            mask &= ~(1 << color);
+        }
+        if (mask == 0) {
+            mask = (int) ((1L << numberOfColors) - 1);
+            if (color >= 0) {
+                mask &= ~(1 << color);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Computes the number of dots a color would capture, without applying it
+     *
+     * @param c
+     *            the color
+     * @return the number of dots captured by selecting c
+     */
+    public int gain(int c) {
+
+        if (c == color) {
+            return 0;
+        }
+        return flood(captured.clone(), colorMasks[c]);
+    }
+
+    /**
+     * Applies a color: every free dot of that color connected to the captured
+     * region is captured. Selecting the current color does nothing and is not a step.
+     *
+     * @param c
+     *            the color
+     * @return the number of captured dots
+     */
+    public int apply(int c) {
+
+        if (c == color) {
+            return 0;
+        }
+
+        int gain = flood(captured, colorMasks[c]);
+        capturedDots += gain;
+        color = c;
+        steps++;
+        return gain;
+    }
+
+    /**
+     * Grows a region through the dots of a mask until nothing changes. Every row is
+     * grown once; then only the rows next to a row that grew are grown again, until
+     * none is left.
+     *
+     * @return the number of dots added to the region
+     */
+    private int flood(long[] region, long[] mask) {
+
+        allocateWorkArrays();
+        int head = 0;                          // queue holds the rows to grow, as a circular queue
+        int count = height;
+        int added = 0;
+
+        for (int x = 0; x < height; x++) {
+            queue[x] = x;
+            queued[x] = true;
+        }
+
+        while (count > 0) {
+            int x = queue[head];
+            head = (head + 1) % height;
+            count--;
+            queued[x] = false;
+
+            int rowAdded = growRow(region, mask, x);
+            if (rowAdded == 0) {
+                continue;
+            }
+            added += rowAdded;
+            for (int d = -1; d <= 1; d += 2) {
+                int next = x + d;
+                if (torusMode) {
+                    next = (next + height) % height;
+                }
+                if (next >= 0 && next < height && !queued[next]) {
+                    queue[(head + count) % height] = next;
+                    queued[next] = true;
+                    count++;
+                }
+            }
+        }
+
+        return added;
+    }
+
+    /**
+     * Allocates the work arrays, the first time they are needed
+     */
+    private void allocateWorkArrays() {
+
+        if (grown == null) {
+            grown = new long[wordsPerRow];
+            queue = new int[height];
+            queued = new boolean[height];
+        }
+    }
+
+    /**
+     * Grows a row of a region with the dots of the mask next to the region, then
+     * fills the runs of the row they belong to
+     *
+     * @return the number of dots added to the row
+     */
+    private int growRow(long[] region, long[] mask, int x) {
+
+        int row = x * wordsPerRow;
+        if (!kernel.anyAndNot(mask, row, region, row, wordsPerRow)) {
+            return 0;
+        }
+
+        Arrays.fill(grown, 0L);
+        dilateRow(region, x, grown);
+        if (!kernel.maskFree(grown, mask, region, row, wordsPerRow)) {
+            return 0;
+        }
+
+        kernel.or(region, row, grown, wordsPerRow);
+        fillRow(grown, region, mask, row);
+
+        int added = 0;
+        for (int w = 0; w < wordsPerRow; w++) {
+            added += Long.bitCount(grown[w] & ~region[row + w]);
+            region[row + w] |= grown[w];
+        }
+        return added;
+    }
+
+    /**
+     * Adds to out the dots reached vertically from the row starting at long from:
+     * the row itself, and in diagonal mode its shifts by one column either way
+     */
+    private void dilateInRow(long[] bits, int from, long[] out) {
+
+        kernel.or(bits, from, out, wordsPerRow);
+        if (diagonalMode) {
+            shiftRow(bits, from, out, true);
+            shiftRow(bits, from, out, false);
+        }
+    }
+
+    /**
+     * Adds to out the dots next to row x of a region: its shifts in the row, and
+     * the dots reached from the rows above and below
+     */
+    private void dilateRow(long[] region, int x, long[] out) {
+
+        int row = x * wordsPerRow;
+        shiftRow(region, row, out, true);
+        shiftRow(region, row, out, false);
+
+        for (int d = -1; d <= 1; d += 2) {
+            int from = x + d;
+            if (torusMode) {
+                from = (from + height) % height;
+            }
+            if (from < 0 || from >= height || from == x) {
+                continue;
+            }
+            dilateInRow(region, from * wordsPerRow, out);
+        }
+    }
+
+    /**
+     * Adds to out the row starting at long row of bits, shifted by one column,
+     * towards the higher columns if up is true. On a torus the width bits of the
+     * row are rotated, so that the first and the last columns are neighbours.
+     */
+    private void shiftRow(long[] bits, int row, long[] out, boolean up) {
+
+        int last = wordsPerRow - 1;
+        int lastBit = (width - 1) & 63;
+
+        if (up) {
+            kernel.orShiftedUp(bits, row, out, wordsPerRow);
+            if (torusMode) {
+                out[0] |= (bits[row + last] >>> lastBit) & 1L;
+            }
+        } else {
+            kernel.orShiftedDown(bits, row, out, wordsPerRow);
+            if (torusMode) {
+                out[last] |= (bits[row] & 1L) << lastBit;
+            }
+        }
+        out[last] &= lastWordMask;
+    }
+
+    /**
+     * Fills the runs of a row: seed grows to every dot connected to it in the row
+     * through dots of the mask or of the region. Each long is filled with occluded
+     * fills both ways; the fills cross to the next long, and around the torus,
+     * until nothing changes.
+     */
+    private void fillRow(long[] seed, long[] region, long[] mask, int row) {
+
+        int last = wordsPerRow - 1;
+        int lastBit = (width - 1) & 63;
+        boolean changed;
+
+        do {
+            kernel.fill(seed, mask, region, row, wordsPerRow);
+
+            changed = false;
+            for (int w = 0; w < last; w++) {
+                long next = mask[row + w + 1] | region[row + w + 1];
+                if (seed[w] < 0 && (next & 1L) != 0 && (seed[w + 1] & 1L) == 0) {
+                    seed[w + 1] |= 1L;
+                    changed = true;
+                }
+                long open = mask[row + w] | region[row + w];
+                if ((seed[w + 1] & 1L) != 0 && open < 0 && seed[w] >= 0) {
+                    seed[w] |= 1L << 63;
+                    changed = true;
+                }
+            }
+            if (torusMode && width > 1) {
+                long lastBitMask = 1L << lastBit;
+                boolean first = (seed[0] & 1L) != 0;
+                boolean end = (seed[last] & lastBitMask) != 0;
+                if (first && !end && ((mask[row + last] | region[row + last]) & lastBitMask) != 0) {
+                    seed[last] |= lastBitMask;
+                    changed = true;
+                }
+                if (end && !first && ((mask[row] | region[row]) & 1L) != 0) {
+                    seed[0] |= 1L;
+                    changed = true;
+                }
+            }
+        } while (changed);
+    }
+
+    /**
+     * Two states are equal if they have captured the same dots of the same board
+     *
+     * @param o
+     *            the other object
+     * @return true if the states are equal
+     */
+    public boolean equals(Object o) {
+
+        if (!(o instanceof BitboardState)) {
+            return false;
+        }
+        BitboardState other = (BitboardState) o;
+        return colorMasks == other.colorMasks && Arrays.equals(captured, other.captured);
+    }
+
+    /**
+     * Hash code of the captured dots
+     *
+     * @return the hash code
+     */
+    public int hashCode() {
+
+        return Arrays.hashCode(captured);
+    }
+
+}
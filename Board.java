@@ -0,0 +1,139 @@
+/**
+ * A <b>Board</b> stores the state of every dot of a game (initial color, captured
+ * or not). A board has height rows of width dots: x is the row, between 0 and
+ * height - 1, y the column, between 0 and width - 1, and dots are addressed by
+ * their index x * width + y. The captured states can also be read and written
+ * 64 at a time, as words of a bitset.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public interface Board {
+
+    /**
+     * Getter method for the width of the board
+     *
+     * @return the number of dots on a row
+     */
+
+    public abstract int getWidth();
+
+    /**
+     * Getter method for the height of the board
+     *
+     * @return the number of rows
+     */
+
+    public abstract int getHeight();
+
+    /**
+     * Getter method for the number of dots on the board
+     *
+     * @return width * height
+     */
+
+    public abstract int length();
+
+    /**
+     * Computes the index of the dot at location (x,y)
+     *
+     * @param x the x coordinate of the dot
+     * @param y the y coordinate of the dot
+     * @return the index of the dot
+     */
+
+    public abstract int index(int x, int y);
+
+    /**
+     * Get for the initial color of a dot
+     *
+     * @param index the index of the dot
+     * @return the color stored for that dot
+     */
+
+    public abstract int getColor(int index);
+
+    /**
+     * Setter for the initial color of a dot
+     *
+     * @param index the index of the dot
+     * @param color the new color
+     */
+
+    public abstract void setColor(int index, int color);
+
+    /**
+     * Get for captured
+     *
+     * @param index the index of the dot
+     * @return true if the dot is captured
+     */
+
+    public abstract boolean isCaptured(int index);
+
+    /**
+     * Sets the dot to captured
+     *
+     * @param index the index of the dot
+     */
+
+    public abstract void capture(int index);
+
+    /**
+     * Sets the dot to not captured
+     *
+     * @param index the index of the dot
+     */
+
+    public abstract void release(int index);
+
+    /**
+     * Returns the number of longs of the captured bitset
+     *
+     * @return the number of words
+     */
+
+    public abstract int getCapturedWordCount();
+
+    /**
+     * Returns 64 captured states at once: bit b of word w is the captured
+     * state of the dot of index 64 * w + b
+     *
+     * @param w the word
+     * @return the captured bits of that word
+     */
+
+    public abstract long getCapturedWord(int w);
+
+    /**
+     * Sets 64 captured states at once
+     *
+     * @param w the word
+     * @param bits the captured bits of that word
+     */
+
+    public abstract void setCapturedWord(int w, long bits);
+
+    /**
+     * Counts the captured dots
+     *
+     * @return the number of captured dots
+     */
+
+    public abstract int countCaptured();
+
+    /**
+     * Clears the captured state of every dot
+     */
+
+    public abstract void clearCaptured();
+
+    /**
+     * Copies the board. The copy is independent, and is kept in memory.
+     *
+     * @return a copy of the board
+     */
+
+    public abstract Board copy();
+
+}
@@ -0,0 +1,257 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import javax.swing.JComponent;
+import javax.swing.event.EventListenerList;
+
+/**
+ * In the application <b>FloodIt</b>, a <b>BoardCanvas</b> draws the whole board in a
+ * single component, instead of one <b>DotButton</b> per dot. It is used for large
+ * boards, where thousands of buttons make the layout and the startup too slow.
+ *
+ * The board is drawn once in an off-screen image, at most MAX_PIXELS wide and high
+ * if its cells keep at least MIN_ICON_PIXELS, so that each dot can still be clicked;
+ * larger boards and long strips are shown in a scroll pane. The cells only get
+ * smaller than that to keep the image under MAX_IMAGE_PIXELS, on boards of more
+ * than 1024 x 1024 dots. Changing the color of a dot only redraws its cell in the
+ * image, and repaints that cell on screen.
+ * The cells use the same icons as <b>DotButton</b>, from the directories ``S'', ``M''
+ * and ``N'' of ``data'' or generated for the other colors, scaled once per color
+ * to the size of a cell. Cells smaller than MIN_ICON_PIXELS are filled with the
+ * color of the center of the icon instead.
+ *
+ * A click on a cell notifies the action listeners, which then read the row and the
+ * column of the cell with getRow and getColumn.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class BoardCanvas extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int MAX_PIXELS = 800;
+    public static final int MAX_IMAGE_PIXELS = 1 << 22;
+
+    private static final int MIN_ICON_PIXELS = 4;
+    private static final int[] ICON_PIXELS = { 11, 28, 40 };
+
+    private int width, height;
+    private int cellSize;
+    private int row, column;
+
+    private BufferedImage boardImage;
+    private BufferedImage[] cells;
+    private Color[] solidColors;
+
+    private EventListenerList actionListeners = new EventListenerList();
+
+    /**
+     * Constructor used for initializing the canvas of a board
+     *
+     * @param width
+     *            the number of dots on a row
+     * @param height
+     *            the number of rows
+     * @param iconSize
+     *            the size of the icons to use, 0 for small and 1 for medium, as for DotButton
+     * @param numberOfColors
+     *            the number of colors of the game
+     */
+    public BoardCanvas(int width, int height, int iconSize, int numberOfColors) {
+
+        this.width = width;
+        this.height = height;
+        cellSize = Math.min(ICON_PIXELS[Math.min(Math.max(iconSize, 0), 2)], MAX_PIXELS / Math.min(width, height));
+        cellSize = Math.max(cellSize, MIN_ICON_PIXELS);     // the scroll pane shows the rest
+        cellSize = Math.min(cellSize, (int) Math.sqrt((double) MAX_IMAGE_PIXELS / ((long) width * height)));
+        cellSize = Math.max(1, cellSize);
+        row = -1;
+        column = -1;
+
+        boardImage = new BufferedImage(width * cellSize, height * cellSize, BufferedImage.TYPE_INT_RGB);
+        Graphics g = boardImage.getGraphics();
+        g.setColor(Color.white);
+        g.fillRect(0, 0, boardImage.getWidth(), boardImage.getHeight());
+        g.dispose();
+
+        cells = new BufferedImage[numberOfColors];
+        solidColors = new Color[numberOfColors];
+        for (int c = 0; c < numberOfColors; c++) {
+            loadCell(c, iconSize);
+        }
+
+        Dimension size = new Dimension(boardImage.getWidth(), boardImage.getHeight());
+        setPreferredSize(size);
+        setMinimumSize(size);
+        setMaximumSize(size);
+        setOpaque(true);
+
+        addMouseListener(new MouseAdapter() {
+            public void mousePressed(MouseEvent e) {
+                dotPressed(e.getX(), e.getY());
+            }
+        });
+    }
+
+    /**
+     * Scales the icon of a color to the size of a cell, once
+     */
+    private void loadCell(int color, int iconSize) {
+
+        Image icon = DotButton.getImageIcon(color, iconSize).getImage();
+        int iconPixels = ICON_PIXELS[Math.min(Math.max(iconSize, 0), 2)];
+
+        BufferedImage source = new BufferedImage(iconPixels, iconPixels, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = source.createGraphics();
+        g.setColor(Color.white);
+        g.fillRect(0, 0, iconPixels, iconPixels);
+        g.drawImage(icon, 0, 0, iconPixels, iconPixels, null);
+        g.dispose();
+
+        solidColors[color] = new Color(source.getRGB(iconPixels / 2, iconPixels / 2));
+
+        if (cellSize >= MIN_ICON_PIXELS) {
+            cells[color] = new BufferedImage(cellSize, cellSize, BufferedImage.TYPE_INT_RGB);
+            g = cells[color].createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, cellSize, cellSize, null);
+            g.dispose();
+        }
+    }
+
+    /**
+     * Getter method for the size of a cell, in pixels
+     *
+     * @return cellSize
+     */
+    public int getCellSize() {
+
+        return cellSize;
+    }
+
+    /**
+     * Getter method for the row of the last cell clicked
+     *
+     * @return the x coordinate of the dot, -1 before the first click
+     */
+    public int getRow() {
+
+        return row;
+    }
+
+    /**
+     * Getter method for the column of the last cell clicked
+     *
+     * @return the y coordinate of the dot, -1 before the first click
+     */
+    public int getColumn() {
+
+        return column;
+    }
+
+    /**
+     * Changes the color of a dot: its cell is redrawn in the off-screen image,
+     * and only that cell is repainted on screen.
+     *
+     * @param x
+     *            the row of the dot
+     * @param y
+     *            the column of the dot
+     * @param color
+     *            the color to set
+     */
+    public void setColor(int x, int y, int color) {
+
+        drawColor(x, y, color);
+        repaint(y * cellSize, x * cellSize, cellSize, cellSize);
+    }
+
+    /**
+     * Changes the color of a dot in the off-screen image only, without repainting.
+     * Used to redraw many dots at once, followed by a single call to repaint.
+     *
+     * @param x
+     *            the row of the dot
+     * @param y
+     *            the column of the dot
+     * @param color
+     *            the color to set
+     */
+    public void drawColor(int x, int y, int color) {
+
+        int left = y * cellSize;
+        int top = x * cellSize;
+
+        if (cells[color] != null) {
+            boardImage.getRaster().setDataElements(left, top, cells[color].getRaster());
+        } else {
+            int rgb = solidColors[color].getRGB();
+            for (int i = 0; i < cellSize; i++) {
+                for (int j = 0; j < cellSize; j++) {
+                    boardImage.setRGB(left + j, top + i, rgb);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a listener notified when a cell is clicked
+     *
+     * @param listener
+     *            the listener, usually the controller
+     */
+    public void addActionListener(ActionListener listener) {
+
+        actionListeners.add(ActionListener.class, listener);
+    }
+
+    /**
+     * Finds the cell under a click and notifies the listeners
+     */
+    private void dotPressed(int px, int py) {
+
+        if (px < 0 || py < 0 || px >= width * cellSize || py >= height * cellSize) {
+            return;
+        }
+        row = py / cellSize;
+        column = px / cellSize;
+
+        ActionEvent event = new ActionEvent(this, ActionEvent.ACTION_PERFORMED, "dot");
+        for (ActionListener listener : actionListeners.getListeners(ActionListener.class)) {
+            listener.actionPerformed(event);
+        }
+    }
+
+    /**
+     * Paints the part of the off-screen image that must be repainted
+     *
+     * @param g
+     *            the graphics context
+     */
+    protected void paintComponent(Graphics g) {
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(Color.white);
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int right = Math.min(clip.x + clip.width, boardImage.getWidth());
+        int bottom = Math.min(clip.y + clip.height, boardImage.getHeight());
+        if (clip.x < right && clip.y < bottom) {
+            g.drawImage(boardImage, clip.x, clip.y, right, bottom, clip.x, clip.y, right, bottom, null);
+        }
+    }
+
+}
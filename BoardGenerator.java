@@ -0,0 +1,24 @@
+import java.io.Serializable;
+
+/**
+ * A <b>BoardGenerator</b> fills the colors of a new board. A generator is
+ * deterministic: the same seed always gives the same board, so that games,
+ * benchmarks and solver runs can be reproduced from their seed. Generators are
+ * serializable, as they are part of the model.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public interface BoardGenerator extends Serializable {
+
+    /**
+     * Sets the color of every dot of a board. The captured states are not changed.
+     *
+     * @param board the board to fill
+     * @param numberOfColors the colors are between 0 and numberOfColors - 1
+     * @param seed the seed of the board
+     */
+
+    public abstract void generate(Board board, int numberOfColors, long seed);
+
+}
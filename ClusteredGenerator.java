@@ -0,0 +1,57 @@
+/**
+ * The class <b>ClusteredGenerator</b> makes boards of square patches of the same
+ * color, sprinkled with random dots. Each patch has a random color, and each dot
+ * keeps the color of its patch, or gets a random color with a given probability.
+ * Such boards have far fewer components than uniform ones of the same size.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class ClusteredGenerator extends HashedGenerator {
+
+    private static final long serialVersionUID = 1L;
+
+    private int patchSize;
+    private double noise;
+
+    /**
+     * Constructor
+     *
+     * @param patchSize
+     *            the number of dots on a side of a patch, at least 1
+     * @param noise
+     *            the probability for a dot to get a random color, between 0 and 1
+     */
+    public ClusteredGenerator(int patchSize, double noise) {
+
+        if (patchSize < 1 || !(noise >= 0 && noise <= 1)) {
+            throw new IllegalArgumentException("Invalid patches: size " + patchSize + ", noise " + noise);
+        }
+        this.patchSize = patchSize;
+        this.noise = noise;
+    }
+
+    /**
+     * Computes the color of a dot, from its patch or at random
+     *
+     * @param x
+     *            the x coordinate of the dot
+     * @param y
+     *            the y coordinate of the dot
+     * @param numberOfColors
+     *            the number of colors
+     * @param seed
+     *            the seed of the board
+     * @return the color of the dot
+     */
+    protected int color(int x, int y, int numberOfColors, long seed) {
+
+        long bits = hash(seed, ((long) x << 32) | y);
+        if ((bits >>> 11) * 0x1.0p-53 < noise) {
+            return uniform(hash(bits, 0), numberOfColors);
+        }
+        long patch = ((long) (x / patchSize) << 32) | (y / patchSize);
+        return uniform(hash(~seed, patch), numberOfColors);
+    }
+
+}
@@ -0,0 +1,283 @@
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The class <b>ComponentGraph</b> is the board seen as a graph of connected
+ * components. Two adjacent dots belong to the same component if they are both
+ * captured, or if they are both free and have the same color. Adjacency follows
+ * the torus and diagonal modes of the model the graph was built from.
+ *
+ * The graph is computed once with a union-find pass over the board, and never
+ * changes afterwards: capturing a color is then a merge of whole components
+ * into the captured region, instead of a flood dot by dot. Components and their
+ * neighbours are stored in flat arrays (compressed adjacency lists).
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class ComponentGraph implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int numberOfDots;
+    private int numberOfComponents;
+
+    private int[] componentOf;      // component of each dot
+    private int[] color;            // color of each component, -1 if captured
+    private boolean[] captured;     // captured state of each component when the graph was built
+
+    private int[] dotStart;         // dots of component k are dots[dotStart[k] .. dotStart[k+1]-1]
+    private int[] dots;
+
+    private int[] neighbourStart;   // neighbours of component k are neighbours[neighbourStart[k] .. neighbourStart[k+1]-1]
+    private int[] neighbours;
+
+    private long[] zobristKeys;     // the Zobrist keys of the dots of each component, xored
+
+    /**
+     * Constructor used for building the graph of the current board of a model.
+     *
+     * @param model
+     *            the model of the game
+     */
+    public ComponentGraph(GameModel model) {
+
+        Board board = model.board;
+        numberOfDots = board.length();
+
+        int[] adjacent = new int[8];
+        int[] parent = new int[numberOfDots];
+        for (int i = 0; i < numberOfDots; i++) {
+            parent[i] = i;
+        }
+
+        // union-find over the board: merge every dot with the equivalent neighbours
+
+        for (int i = 0; i < numberOfDots; i++) {
+            int count = model.neighbours(i, adjacent);
+            for (int n = 0; n < count; n++) {
+                int j = adjacent[n];
+                if (j > i && sameComponent(board, i, j)) {
+                    int rootI = find(parent, i);
+                    int rootJ = find(parent, j);
+                    if (rootI != rootJ) {
+                        parent[Math.max(rootI, rootJ)] = Math.min(rootI, rootJ);
+                    }
+                }
+            }
+        }
+
+        // number the components and group their dots (counting sort)
+
+        componentOf = new int[numberOfDots];
+        numberOfComponents = 0;
+        for (int i = 0; i < numberOfDots; i++) {
+            int root = find(parent, i);
+            if (root == i) {
+                componentOf[i] = numberOfComponents++;
+            } else {
+                componentOf[i] = componentOf[root];
+            }
+        }
+
+        color = new int[numberOfComponents];
+        captured = new boolean[numberOfComponents];
+        dotStart = new int[numberOfComponents + 1];
+        dots = new int[numberOfDots];
+
+        for (int i = 0; i < numberOfDots; i++) {
+            int k = componentOf[i];
+            dotStart[k + 1]++;
+            captured[k] = board.isCaptured(i);
+            color[k] = captured[k] ? -1 : board.getColor(i);
+        }
+        for (int k = 0; k < numberOfComponents; k++) {
+            dotStart[k + 1] += dotStart[k];
+        }
+        int[] fill = new int[numberOfComponents];
+        zobristKeys = new long[numberOfComponents];
+        for (int i = 0; i < numberOfDots; i++) {
+            int k = componentOf[i];
+            dots[dotStart[k] + fill[k]++] = i;
+            zobristKeys[k] ^= GameModel.zobristDotKey(i);
+        }
+
+        // adjacency between components, without duplicates: a first pass counts,
+        // a second one fills. last[m] remembers the last component linked to m.
+
+        int[] last = new int[numberOfComponents];
+        neighbourStart = new int[numberOfComponents + 1];
+
+        for (int pass = 0; pass < 2; pass++) {
+            Arrays.fill(last, -1);
+            int total = 0;
+            for (int k = 0; k < numberOfComponents; k++) {
+                neighbourStart[k] = total;
+                for (int d = dotStart[k]; d < dotStart[k + 1]; d++) {
+                    int count = model.neighbours(dots[d], adjacent);
+                    for (int n = 0; n < count; n++) {
+                        int m = componentOf[adjacent[n]];
+                        if (m != k && last[m] != k) {
+                            last[m] = k;
+                            if (pass == 1) {
+                                neighbours[total] = m;
+                            }
+                            total++;
+                        }
+                    }
+                }
+            }
+            neighbourStart[numberOfComponents] = total;
+            if (pass == 0) {
+                neighbours = new int[total];
+            }
+        }
+    }
+
+    /**
+     * Two adjacent dots are in the same component if they are both captured,
+     * or both free and of the same color.
+     */
+    private static boolean sameComponent(Board board, int i, int j) {
+
+        boolean capturedI = board.isCaptured(i);
+        if (capturedI != board.isCaptured(j)) {
+            return false;
+        }
+        return capturedI || board.getColor(i) == board.getColor(j);
+    }
+
+    /**
+     * Finds the root of a dot in the union-find forest, with path halving.
+     */
+    private static int find(int[] parent, int i) {
+
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Getter method for the number of components
+     *
+     * @return numberOfComponents
+     */
+    public int getNumberOfComponents() {
+
+        return numberOfComponents;
+    }
+
+    /**
+     * Getter method for the number of dots of the board
+     *
+     * @return numberOfDots
+     */
+    public int getNumberOfDots() {
+
+        return numberOfDots;
+    }
+
+    /**
+     * Returns the component of a dot
+     *
+     * @param index
+     *            the index of the dot in the board
+     * @return the component containing that dot
+     */
+    public int getComponent(int index) {
+
+        return componentOf[index];
+    }
+
+    /**
+     * Returns the color of a component
+     *
+     * @param k
+     *            the component
+     * @return its color, or -1 if it was captured when the graph was built
+     */
+    public int getColor(int k) {
+
+        return color[k];
+    }
+
+    /**
+     * Returns true if the component was captured when the graph was built
+     *
+     * @param k
+     *            the component
+     * @return captured[k]
+     */
+    public boolean isCaptured(int k) {
+
+        return captured[k];
+    }
+
+    /**
+     * Returns the number of dots in a component
+     *
+     * @param k
+     *            the component
+     * @return the size of the component
+     */
+    public int getSize(int k) {
+
+        return dotStart[k + 1] - dotStart[k];
+    }
+
+    /**
+     * Returns the n-th dot of a component
+     *
+     * @param k
+     *            the component
+     * @param n
+     *            between 0 and getSize(k) - 1
+     * @return the index of the dot in the board
+     */
+    public int getDot(int k, int n) {
+
+        return dots[dotStart[k] + n];
+    }
+
+    /**
+     * Returns the number of components adjacent to a component
+     *
+     * @param k
+     *            the component
+     * @return the number of neighbours of k
+     */
+    public int getNumberOfNeighbours(int k) {
+
+        return neighbourStart[k + 1] - neighbourStart[k];
+    }
+
+    /**
+     * Returns the n-th neighbour of a component
+     *
+     * @param k
+     *            the component
+     * @param n
+     *            between 0 and getNumberOfNeighbours(k) - 1
+     * @return the neighbouring component
+     */
+    public int getNeighbour(int k, int n) {
+
+        return neighbours[neighbourStart[k] + n];
+    }
+
+    /**
+     * Returns the Zobrist key of a component: capturing it changes the Zobrist
+     * hash of a state by this key
+     *
+     * @param k
+     *            the component
+     * @return the keys of the dots of k, xored
+     */
+    public long getZobristKey(int k) {
+
+        return zobristKeys[k];
+    }
+
+}
@@ -1,181 +1,236 @@
-import java.awt.Color;
-import javax.swing.ImageIcon;
-import javax.swing.JButton;
-import javax.swing.BorderFactory;
-import javax.swing.border.Border;
-
-/**
- * In the application <b>FloodIt</b>, a <b>DotButton</b> is a specialized color of
- * <b>JButton</b> that represents a dot in the game. It can have one of six colors
- * 
- * The icon images are stored in a subdirectory ``data''. We have 3 sizes, ``normal'',
- * ``medium'' and ``small'', respectively in directory ``N'', ``M'' and ``S''.
- *
- * The images are 
- * ball-0.png => grey icon
- * ball-1.png => orange icon
- * ball-2.png => blue icon
- * ball-3.png => green icon
- * ball-4.png => purple icon
- * ball-5.png => red icon
- *
- *  <a href=
- * "http://developer.apple.com/library/safari/#samplecode/Puzzler/Introduction/Intro.html%23//apple_ref/doc/uid/DTS10004409"
- * >Based on Puzzler by Apple</a>.
- * @author Weiyun Lu, University of Ottawa
- */
-
-public class DotButton extends JButton {
-
-    private int row, column;
-    private int color;
-    private int iconSize;
-    private static final ImageIcon iconsSmall[] = new ImageIcon[6];          // Array to hold 6 possible colors.  Since a button is always same size, we don't need more than this.
-    private static final ImageIcon iconsMedium[] = new ImageIcon[6];
-    private static final ImageIcon iconsNormal[] = new ImageIcon[6];
-
-    /**
-     * Constructor used for initializing a cell of a specified color.
-     * 
-     * @param row
-     *            the row of this Cell
-     * @param column
-     *            the column of this Cell
-     * @param color
-     *            specifies the color of this cell
-     * @param iconSize
-     *            specifies the size to use, one of SMALL_SIZE, MEDIUM_SIZE or MEDIUM_SIZE
-     */
-
-    public DotButton(int row, int column, int color, int iconSize) {
-
-        this.row = row;
-        this.column = column;
-        this.iconSize = iconSize;
-
-        setBackground(Color.white);
-        Border emptyBorder = BorderFactory.createEmptyBorder(0, 0, 0, 0);
-        setBorder(emptyBorder);
-        setBorderPainted(false);
-        setIcon(getImageIcon(color, iconSize));
-    }
-
- /**
-     * Other constructor used for initializing a cell of a specified color.
-     * no row or column info available. Uses "-1, -1" for row and column instead
-     * 
-     * @param color
-     *            specifies the color of this cell
-     * @param iconSize
-     *            specifies the size to use, one of SMALL_SIZE, MEDIUM_SIZE or MEDIUM_SIZE
-     */   
-    public DotButton(int color, int iconSize) {
-
-        row = -1;
-        column = -1;
-        this.iconSize = iconSize;
-
-        setBackground(Color.white);
-        Border emptyBorder = BorderFactory.createEmptyBorder(0, 0, 0, 0);
-        setBorder(emptyBorder);
-        setBorderPainted(false);
-        setIcon(getImageIcon(color, iconSize));
-    }
- 
-
-
-    /**
-     * Changes the cell color of this cell. The image is updated accordingly.
-     * 
-     * @param color
-     *            the color to set
-     */
-
-    public void setColor(int color) {
-
-        this.color = color;
-        setIcon(getImageIcon(color, iconSize));
-    }
-
-    /**
-     * Getter for color
-     *
-     * @return color
-     */
-    public int getColor(){
-
-        return color;
-    }
- 
-    /**
-     * Getter method for the attribute row.
-     * 
-     * @return the value of the attribute row
-     */
-
-    public int getRow() {
-
-        return row;
-    }
-
-    /**
-     * Getter method for the attribute column.
-     * 
-     * @return the value of the attribute column
-     */
-
-    public int getColumn() {
-
-        return column;
-    }
-
-
-    /**
-     * Method to convert integer size to a string to find our icon.
-     * 0 means small, 1 means medium, any other size means "normal"
-     * @param the size to input
-     * @return string to find the file path
-     */
-
-    private String sizeToString(int iconSize) {
-        if (iconSize == 0)
-            return "S";
-        if (iconSize == 1)
-            return "M";
-        return "N";
-    }
-
-    /**
-     * Determine the image to use based on the cell type. Uses
-     * <b>getResource</b> to locate the image file, either on the file system or
-     * the .jar file.
-     *
-     * Since icons never need to be more than one size, once it exists in the array, it's fine.
-     * 
-     * @return the image to be displayed by the button
-     */
-
-    private ImageIcon getImageIcon(int color, int iconSize) {
-
-        ImageIcon[] icons;
-
-        if (iconSize == 0) {
-            icons = iconsSmall;
-        } else if (iconSize == 1) {
-            icons = iconsMedium;
-        } else {
-            icons = iconsNormal;
-        }
-
-        if (icons[color] == null) {
-            String size = sizeToString(iconSize);
-            String strColor = Integer.toString(color);
-            icons[color] = new ImageIcon(DotButton.class.getResource("/data/" + size +  "/ball-" + strColor + ".png"));
-        }
-
-        return icons[color];
-    }
-
-
-
-}
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.net.URL;
+import javax.swing.ImageIcon;
+import javax.swing.JButton;
+import javax.swing.BorderFactory;
+import javax.swing.border.Border;
+
+/**
+ * In the application <b>FloodIt</b>, a <b>DotButton</b> is a specialized color of
+ * <b>JButton</b> that represents a dot in the game. It can have one of six colors,
+ * or more if the game has more colors.
+ * 
+ * The icon images are stored in a subdirectory ``data''. We have 3 sizes, ``normal'',
+ * ``medium'' and ``small'', respectively in directory ``N'', ``M'' and ``S''.
+ *
+ * The images are 
+ * ball-0.png => grey icon
+ * ball-1.png => orange icon
+ * ball-2.png => blue icon
+ * ball-3.png => green icon
+ * ball-4.png => purple icon
+ * ball-5.png => red icon
+ *
+ * The other colors do not have images: their icons are generated, as balls of
+ * hues spread around the color wheel.
+ *
+ *  <a href=
+ * "http://developer.apple.com/library/safari/#samplecode/Puzzler/Introduction/Intro.html%23//apple_ref/doc/uid/DTS10004409"
+ * >Based on Puzzler by Apple</a>.
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class DotButton extends JButton {
+
+    private int row, column;
+    private int color;
+    private int iconSize;
+    private static final ImageIcon iconsSmall[] = new ImageIcon[GameModel.MAX_NUMBER_OF_COLORS];          // Array to hold every possible color.  Since a button is always same size, we don't need more than this.
+    private static final ImageIcon iconsMedium[] = new ImageIcon[GameModel.MAX_NUMBER_OF_COLORS];
+    private static final ImageIcon iconsNormal[] = new ImageIcon[GameModel.MAX_NUMBER_OF_COLORS];
+    private static final int[] ICON_PIXELS = { 11, 28, 40 };  // sizes of the images of S, M and N
+
+    /**
+     * Constructor used for initializing a cell of a specified color.
+     * 
+     * @param row
+     *            the row of this Cell
+     * @param column
+     *            the column of this Cell
+     * @param color
+     *            specifies the color of this cell
+     * @param iconSize
+     *            specifies the size to use, one of SMALL_SIZE, MEDIUM_SIZE or MEDIUM_SIZE
+     */
+
+    public DotButton(int row, int column, int color, int iconSize) {
+
+        this.row = row;
+        this.column = column;
+        this.iconSize = iconSize;
+        this.color = color;
+
+        setBackground(Color.white);
+        Border emptyBorder = BorderFactory.createEmptyBorder(0, 0, 0, 0);
+        setBorder(emptyBorder);
+        setBorderPainted(false);
+        setIcon(getImageIcon(color, iconSize));
+    }
+
+ /**
+     * Other constructor used for initializing a cell of a specified color.
+     * no row or column info available. Uses "-1, -1" for row and column instead
+     * 
+     * @param color
+     *            specifies the color of this cell
+     * @param iconSize
+     *            specifies the size to use, one of SMALL_SIZE, MEDIUM_SIZE or MEDIUM_SIZE
+     */   
+    public DotButton(int color, int iconSize) {
+
+        row = -1;
+        column = -1;
+        this.iconSize = iconSize;
+        this.color = color;
+
+        setBackground(Color.white);
+        Border emptyBorder = BorderFactory.createEmptyBorder(0, 0, 0, 0);
+        setBorder(emptyBorder);
+        setBorderPainted(false);
+        setIcon(getImageIcon(color, iconSize));
+    }
+ 
+
+
+    /**
+     * Changes the cell color of this cell. The image is updated accordingly, only
+     * if the color changed, so that an unchanged cell is not repainted.
+     * 
+     * @param color
+     *            the color to set
+     */
+
+    public void setColor(int color) {
+
+        if (color == this.color) {
+            return;
+        }
+        this.color = color;
+        setIcon(getImageIcon(color, iconSize));
+    }
+
+    /**
+     * Getter for color
+     *
+     * @return color
+     */
+    public int getColor(){
+
+        return color;
+    }
+ 
+    /**
+     * Getter method for the attribute row.
+     * 
+     * @return the value of the attribute row
+     */
+
+    public int getRow() {
+
+        return row;
+    }
+
+    /**
+     * Getter method for the attribute column.
+     * 
+     * @return the value of the attribute column
+     */
+
+    public int getColumn() {
+
+        return column;
+    }
+
+
+    /**
+     * Method to convert integer size to a string to find our icon.
+     * 0 means small, 1 means medium, any other size means "normal"
+     * @param the size to input
+     * @return string to find the file path
+     */
+
+    private static String sizeToString(int iconSize) {
+        if (iconSize == 0)
+            return "S";
+        if (iconSize == 1)
+            return "M";
+        return "N";
+    }
+
+    /**
+     * Determine the image to use based on the cell type. Uses
+     * <b>getResource</b> to locate the image file, either on the file system or
+     * the .jar file.
+     *
+     * Since icons never need to be more than one size, once it exists in the array, it's fine.
+     * Colors without an image get a generated icon of the same size.
+     * 
+     * @param color
+     *            the color of the dot
+     * @param iconSize
+     *            the size of the icon, 0 for small, 1 for medium, 2 for normal
+     * @return the image to be displayed by the button
+     */
+
+    public static synchronized ImageIcon getImageIcon(int color, int iconSize) {
+
+        ImageIcon[] icons;
+
+        if (iconSize == 0) {
+            icons = iconsSmall;
+        } else if (iconSize == 1) {
+            icons = iconsMedium;
+        } else {
+            icons = iconsNormal;
+        }
+
+        if (icons[color] == null) {
+            String size = sizeToString(iconSize);
+            String strColor = Integer.toString(color);
+            URL image = DotButton.class.getResource("/data/" + size +  "/ball-" + strColor + ".png");
+            if (image != null) {
+                icons[color] = new ImageIcon(image);
+            } else {
+                icons[color] = generateIcon(color, ICON_PIXELS[Math.min(Math.max(iconSize, 0), 2)]);
+            }
+        }
+
+        return icons[color];
+    }
+
+    /**
+     * Draws the icon of a color without an image: a shaded ball, of a hue
+     * given by the golden angle, so that consecutive colors look different.
+     * 
+     * @param color
+     *            the color of the dot
+     * @param pixels
+     *            the width and height of the icon
+     * @return the generated icon
+     */
+
+    private static ImageIcon generateIcon(int color, int pixels) {
+
+        float hue = (float) ((color * 0.6180339887498949) % 1.0);
+        Color fill = Color.getHSBColor(hue, 0.7f, 0.9f);
+
+        BufferedImage image = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(fill);
+        g.fillOval(0, 0, pixels - 1, pixels - 1);
+        g.setColor(fill.darker());
+        g.drawOval(0, 0, pixels - 1, pixels - 1);
+        g.setColor(new Color(255, 255, 255, 110));
+        g.fillOval(pixels / 4, pixels / 5, pixels / 3, pixels / 4);
+        g.dispose();
+
+        return new ImageIcon(image);
+    }
+
+
+
+}
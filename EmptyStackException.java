@@ -1,6 +1,6 @@
-public class EmptyStackException extends RuntimeException {
-	
-	public EmptyStackException(String msg){
-		super(msg);
-	}
+public class EmptyStackException extends RuntimeException {
+	
+	public EmptyStackException(String msg){
+		super(msg);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * The class <b>FileGenerator</b> reads a board from a text file, one row per line,
+ * the colors separated by spaces: the format of <b>GameModel.toString</b>. Reading
+ * stops at the first line that is not a row of colors, such as the line of steps.
+ * Every row must have the same length. The seed is ignored: the board is always
+ * the same.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class FileGenerator implements BoardGenerator {
+
+    private static final long serialVersionUID = 1L;
+
+    private int[][] colors;
+
+    /**
+     * Constructor, which reads the file
+     *
+     * @param file
+     *            the file to read
+     * @throws IOException
+     *            if the file cannot be read, or does not hold a rectangular board
+     */
+    public FileGenerator(File file) throws IOException {
+
+        ArrayList<int[]> rows = new ArrayList<int[]>();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || !Character.isDigit(line.charAt(0))) {
+                    break;
+                }
+                String[] values = line.split("\\s+");
+                int[] row = new int[values.length];
+                for (int y = 0; y < values.length; y++) {
+                    try {
+                        row[y] = Integer.parseInt(values[y]);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Invalid color in row " + rows.size() + ": " + values[y]);
+                    }
+                }
+                rows.add(row);
+            }
+        } finally {
+            reader.close();
+        }
+
+        colors = rows.toArray(new int[rows.size()][]);
+        if (colors.length == 0) {
+            throw new IOException("No board in " + file);
+        }
+        for (int x = 0; x < colors.length; x++) {
+            if (colors[x].length != colors[0].length) {
+                throw new IOException("The rows of the board of " + file + " do not have the same length.");
+            }
+        }
+    }
+
+    /**
+     * Getter method for the width of the board of the file
+     *
+     * @return the number of dots on a row
+     */
+    public int getWidth() {
+
+        return colors[0].length;
+    }
+
+    /**
+     * Getter method for the height of the board of the file
+     *
+     * @return the number of rows
+     */
+    public int getHeight() {
+
+        return colors.length;
+    }
+
+    /**
+     * Copies the board of the file
+     *
+     * @param board
+     *            the board to fill, of the same width and height
+     * @param numberOfColors
+     *            the number of colors
+     * @param seed
+     *            ignored
+     */
+    public void generate(Board board, int numberOfColors, long seed) {
+
+        if (board.getWidth() != getWidth() || board.getHeight() != getHeight()) {
+            throw new IllegalArgumentException("The board is " + board.getWidth() + "x" + board.getHeight()
+                + ", the file is " + getWidth() + "x" + getHeight());
+        }
+        for (int x = 0; x < getHeight(); x++) {
+            for (int y = 0; y < getWidth(); y++) {
+                if (colors[x][y] < 0 || colors[x][y] >= numberOfColors) {
+                    throw new IllegalArgumentException("Invalid color at (" + x + "," + y + "): " + colors[x][y]);
+                }
+                board.setColor(board.index(x, y), colors[x][y]);
+            }
+        }
+    }
+
+}
@@ -1,49 +1,116 @@
-//temp
-import java.util.Scanner;
-
-/**
- * The class <b>FloodIt</b> launches the game
- *
- * @author Weiyun Lu, University of Ottawa
- */
-
-public class FloodIt {
-
-
-   /**
-     * <b>main</b> of the application. Creates the instance of  GameController 
-     * and starts the game. If a game size (10 or more) is passed as parameter, it is 
-     * used as the board size. Otherwise, a default value of 12 is passed
-     * 
-     * @param args
-     *            command line parameters
-     */
-
-     public static void main(String[] args) {
-
-        StudentInfo.display();
-
-        int size;
-
-        //temp
-        //Scanner in = new Scanner(System.in);
-
-        if (args.length >= 1 && Integer.parseInt(args[0]) >= 10) {
-            size = Integer.parseInt(args[0]);
-        } else {
-            size = 12;
-        }
-
-        GameController controller = new GameController(size);
-
-        // temp ask player for inputs
-        //while (!controller.theModel.isFinished()) {
-         //   System.out.println("Enter next color (0-6):");
-          //  int color = in.nextInt();
-           // controller.selectColor(color);
-        //}
-
-   }
-
-
+import java.io.IOException;
+import java.util.Arrays;
+//temp
+import java.util.Scanner;
+
+/**
+ * The class <b>FloodIt</b> launches the game
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class FloodIt {
+
+    private static final String USAGE =
+        "Usage: java FloodIt [SIZE or WIDTHxHEIGHT] [COLORS] [canvas|buttons]\n"
+        + "       java FloodIt simulate [option=value ...]\n"
+        + "       java FloodIt serve [PORT] [SAVE DIRECTORY]";
+
+   /**
+     * <b>main</b> of the application. Creates the instance of  GameController 
+     * and starts the game. If a game size (10 or more) is passed as parameter, it is 
+     * used as the board size. Otherwise, a default value of 12 is passed. A rectangular
+     * board is given as WIDTHxHEIGHT, for instance 10x10000. The next
+     * parameters can be a number of colors (6 by default), and "canvas" or "buttons"
+     * to choose how the board is drawn; by default, boards larger than
+     * GameView.CANVAS_SIZE are drawn on a single canvas.
+     *
+     * With "simulate" as first parameter, no game is shown: the <b>Simulator</b> plays
+     * many games headless, with the options given as the next parameters
+     * (java FloodIt simulate size=30 seeds=0-999 strategy=greedy format=jsonl).
+     * With "serve", the <b>GameServer</b> hosts games for clients on a local socket
+     * (java FloodIt serve [port] [save directory]).
+     * 
+     * @param args
+     *            command line parameters
+     */
+
+     public static void main(String[] args) {
+
+        if (args.length >= 1 && args[0].equals("simulate")) {
+            try {
+                Simulator.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException e) {
+                System.err.println("Error writing the simulation: " + e.getMessage());
+            }
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("serve")) {
+            try {
+                GameServer.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IllegalArgumentException e) {
+                // a port that is not a number, or out of range
+                System.err.println("Invalid parameter: " + args[1]);
+                System.err.println(USAGE);
+            } catch (IOException e) {
+                System.err.println("Error starting the server: " + e.getMessage());
+            }
+            return;
+        }
+
+        StudentInfo.display();
+
+        int width, height;
+
+        //temp
+        //Scanner in = new Scanner(System.in);
+
+        boolean useCanvas;
+        int colors = GameModel.NUMBER_OF_COLORS;
+        String argument = args.length >= 1 ? args[0] : "";
+        try {
+            if (args.length >= 1 && args[0].indexOf('x') >= 0) {
+                String[] dimensions = args[0].split("x", -1);
+                if (dimensions.length != 2) {
+                    throw new NumberFormatException();
+                }
+                width = Math.max(Integer.parseInt(dimensions[0]), 1);
+                height = Math.max(Integer.parseInt(dimensions[1]), 1);
+            } else if (args.length >= 1 && Integer.parseInt(args[0]) >= 10) {
+                width = height = Integer.parseInt(args[0]);
+            } else {
+                width = height = 12;
+            }
+            if ((long) width * height > Integer.MAX_VALUE) {
+                throw new NumberFormatException();
+            }
+
+            useCanvas = Math.max(width, height) > GameView.CANVAS_SIZE;
+            for (int i = 1; i < args.length; i++) {
+                argument = args[i];
+                if (args[i].equals("canvas") || args[i].equals("buttons")) {
+                    useCanvas = args[i].equals("canvas");
+                } else {
+                    colors = Math.max(GameModel.MIN_NUMBER_OF_COLORS,
+                        Math.min(Integer.parseInt(args[i]), GameModel.MAX_NUMBER_OF_COLORS));
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid parameter: " + argument);
+            System.err.println(USAGE);
+            return;
+        }
+
+        GameController controller = new GameController(width, height, colors, useCanvas);
+
+        // temp ask player for inputs
+        //while (!controller.theModel.isFinished()) {
+         //   System.out.println("Enter next color (0-6):");
+          //  int color = in.nextInt();
+           // controller.selectColor(color);
+        //}
+
+   }
+
+
 }
\ No newline at end of file
@@ -0,0 +1,418 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>FloodState</b> is a light copy of the state of a game, used by the
+ * solvers. It works on the <b>ComponentGraph</b> of a model: the captured region
+ * and its frontier are stored as bitsets of components, so copying a state and
+ * applying a move are cheap. The graph is shared by all the states of a search,
+ * and so are the torus and diagonal modes it was built with.
+ *
+ * Two states are equal if they have captured the same components; the current
+ * color does not matter, since it only forbids selecting it again.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class FloodState {
+
+    private ComponentGraph graph;
+    private long[] captured;    // captured components
+    private long[] frontier;    // free components adjacent to a captured one
+    private int color;
+    private int numberOfColors;
+    private int capturedDots;
+    private int steps;
+    private long zobristHash;   // as GameModel.getZobristHash
+
+    /**
+     * Constructor used for initializing a state from the current state of a model.
+     * If the game has not started yet, it starts from the dot (0,0), as the engine does.
+     *
+     * @param model
+     *            the model of the game
+     */
+    public FloodState(GameModel model) {
+
+        graph = model.getComponentGraph();
+        int words = (graph.getNumberOfComponents() + 63) >>> 6;
+        captured = new long[words];
+        frontier = new long[words];
+        color = model.getCurrentSelectedColor();
+        numberOfColors = model.getNumberOfColors();
+        steps = Math.max(model.getNumberOfSteps(), 0);
+
+        if (model.getNumberOfSteps() < 0) {
+            int start = graph.getComponent(0);
+            color = graph.getColor(start);
+            zobristHash = GameModel.zobristColorKey(color);
+            captureComponent(start);
+        } else {
+            zobristHash = GameModel.zobristColorKey(color);
+            for (int k = 0; k < graph.getNumberOfComponents(); k++) {
+                if (model.board.isCaptured(graph.getDot(k, 0))) {
+                    captured[k >>> 6] |= 1L << k;
+                    capturedDots += graph.getSize(k);
+                    zobristHash ^= graph.getZobristKey(k);
+                }
+            }
+            for (int k = 0; k < graph.getNumberOfComponents(); k++) {
+                if (isCaptured(k)) {
+                    addNeighboursToFrontier(k);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy constructor
+     */
+    private FloodState(FloodState other) {
+
+        graph = other.graph;
+        captured = other.captured.clone();
+        frontier = other.frontier.clone();
+        color = other.color;
+        numberOfColors = other.numberOfColors;
+        capturedDots = other.capturedDots;
+        steps = other.steps;
+        zobristHash = other.zobristHash;
+    }
+
+    /**
+     * Copies the state; the copy shares the graph but nothing else
+     *
+     * @return a copy of this state
+     */
+    public FloodState copy() {
+
+        return new FloodState(this);
+    }
+
+    /**
+     * Getter method for the component graph
+     *
+     * @return graph
+     */
+    public ComponentGraph getGraph() {
+
+        return graph;
+    }
+
+    /**
+     * Getter method for the current color
+     *
+     * @return color
+     */
+    public int getColor() {
+
+        return color;
+    }
+
+    /**
+     * Getter method for the number of colors of the game
+     *
+     * @return numberOfColors
+     */
+    public int getNumberOfColors() {
+
+        return numberOfColors;
+    }
+
+    /**
+     * Getter method for the number of captured dots
+     *
+     * @return capturedDots
+     */
+    public int getCapturedDots() {
+
+        return capturedDots;
+    }
+
+    /**
+     * Getter method for the number of steps
+     *
+     * @return steps
+     */
+    public int getSteps() {
+
+        return steps;
+    }
+
+    /**
+     * Getter method for the Zobrist hash of the captured dots and the current
+     * color, the same as the one of a model in that state
+     *
+     * @return zobristHash
+     */
+    public long getZobristHash() {
+
+        return zobristHash;
+    }
+
+    /**
+     * Returns the Zobrist hash of the captured dots only, without the current color,
+     * which identifies the states that are equal
+     *
+     * @return the Zobrist hash of the captured dots
+     */
+    public long getRegionHash() {
+
+        return zobristHash ^ GameModel.zobristColorKey(color);
+    }
+
+    /**
+     * Returns true iff every dot is captured
+     *
+     * @return true if the game is finished
+     */
+    public boolean isFinished() {
+
+        return capturedDots == graph.getNumberOfDots();
+    }
+
+    /**
+     * Returns true if a component is captured
+     *
+     * @param k
+     *            the component
+     * @return true if k is captured
+     */
+    public boolean isCaptured(int k) {
+
+        return (captured[k >>> 6] & (1L << k)) != 0;
+    }
+
+    /**
+     * Returns the colors worth selecting, as a bitmask: the colors of the frontier
+     * components, except the current color. If there is none (the frontier only
+     * holds dots of the current color, after a change of mode), every other color.
+     *
+     * @return a bitmask of the colors to try, 0 if the game is finished
+     */
+    public int moves() {
+
+        if (isFinished()) {
+            return 0;
+        }
+        int mask = 0;
+        for (int w = 0; w < frontier.length; w++) {
+            long bits = frontier[w];
+            while (bits != 0) {
+                int k = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                mask |= 1 << graph.getColor(k);
+            }
+        }
+        if (color >= 0) {
+            mask &= ~(1 << color);
+        }
+        if (mask == 0) {
+            mask = (int) ((1L << numberOfColors) - 1);
+            if (color >= 0) {
+                mask &= ~(1 << color);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Computes the number of dots a color would capture, without applying it
+     *
+     * @param c
+     *            the color
+     * @return the number of dots captured by selecting c
+     */
+    public int gain(int c) {
+
+        if (c == color) {
+            return 0;
+        }
+        int gain = 0;
+        for (int w = 0; w < frontier.length; w++) {
+            long bits = frontier[w];
+            while (bits != 0) {
+                int k = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (graph.getColor(k) == c) {
+                    gain += graph.getSize(k);
+                }
+            }
+        }
+        return gain;
+    }
+
+    /**
+     * Returns the number of components in the frontier
+     *
+     * @return the size of the frontier
+     */
+    public int getFrontierSize() {
+
+        int size = 0;
+        for (int w = 0; w < frontier.length; w++) {
+            size += Long.bitCount(frontier[w]);
+        }
+        return size;
+    }
+
+    /**
+     * Applies a color: every frontier component of that color is captured.
+     * Selecting the current color does nothing and is not a step.
+     *
+     * @param c
+     *            the color
+     * @return the number of captured dots
+     */
+    public int apply(int c) {
+
+        if (c == color) {
+            return 0;
+        }
+
+        int before = capturedDots;
+
+        // components added to the frontier by this move never have color c:
+        // they would be part of the component that brought them
+        for (int w = 0; w < frontier.length; w++) {
+            long bits = frontier[w];
+            while (bits != 0) {
+                int k = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (graph.getColor(k) == c) {
+                    captureComponent(k);
+                }
+            }
+        }
+
+        zobristHash ^= GameModel.zobristColorKey(color) ^ GameModel.zobristColorKey(c);
+        color = c;
+        steps++;
+        return capturedDots - before;
+    }
+
+    /**
+     * Captures a component and updates the frontier
+     */
+    private void captureComponent(int k) {
+
+        captured[k >>> 6] |= 1L << k;
+        frontier[k >>> 6] &= ~(1L << k);
+        capturedDots += graph.getSize(k);
+        zobristHash ^= graph.getZobristKey(k);
+        addNeighboursToFrontier(k);
+    }
+
+    /**
+     * Adds the free neighbours of a component to the frontier
+     */
+    private void addNeighboursToFrontier(int k) {
+
+        int count = graph.getNumberOfNeighbours(k);
+        for (int n = 0; n < count; n++) {
+            int m = graph.getNeighbour(k, n);
+            if (!isCaptured(m)) {
+                frontier[m >>> 6] |= 1L << m;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct colors among the free components. Each
+     * move removes at most one color, so this is a lower bound on the number
+     * of moves left.
+     *
+     * @return the number of remaining colors
+     */
+    public int remainingColors() {
+
+        int seen = 0;
+        for (int k = 0; k < graph.getNumberOfComponents(); k++) {
+            if (!isCaptured(k) && graph.getColor(k) >= 0) {
+                seen |= 1 << graph.getColor(k);
+            }
+        }
+        return Integer.bitCount(seen);
+    }
+
+    /**
+     * Returns the largest distance, in the component graph, between the captured
+     * region and a free component. Each move pushes the captured region by at most
+     * one component, so this is a lower bound on the number of moves left.
+     *
+     * @return the eccentricity of the captured region
+     */
+    public int eccentricity() {
+
+        int n = graph.getNumberOfComponents();
+        int[] distance = new int[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+
+        for (int k = 0; k < n; k++) {
+            if (isCaptured(k)) {
+                distance[k] = 0;
+                queue[tail++] = k;
+            } else {
+                distance[k] = -1;
+            }
+        }
+
+        int max = 0;
+        while (head < tail) {
+            int k = queue[head++];
+            int count = graph.getNumberOfNeighbours(k);
+            for (int i = 0; i < count; i++) {
+                int m = graph.getNeighbour(k, i);
+                if (distance[m] < 0) {
+                    distance[m] = distance[k] + 1;
+                    max = Math.max(max, distance[m]);
+                    queue[tail++] = m;
+                }
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Returns an admissible lower bound on the number of moves left:
+     * the largest of remainingColors and eccentricity.
+     *
+     * @return a lower bound on the number of moves to finish the game
+     */
+    public int lowerBound() {
+
+        if (isFinished()) {
+            return 0;
+        }
+        return Math.max(remainingColors(), eccentricity());
+    }
+
+    /**
+     * Two states are equal if they have captured the same components of the same graph
+     *
+     * @param o
+     *            the other object
+     * @return true if the states are equal
+     */
+    public boolean equals(Object o) {
+
+        if (!(o instanceof FloodState)) {
+            return false;
+        }
+        FloodState other = (FloodState) o;
+        return graph == other.graph && Arrays.equals(captured, other.captured);
+    }
+
+    /**
+     * Hash code of the captured components
+     *
+     * @return the hash code
+     */
+    public int hashCode() {
+
+        return Arrays.hashCode(captured);
+    }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * The class <b>GameDelta</b> records what one action of the player changed in a
+ * <b>GameModel</b>, so that it can be undone and redone without copying the
+ * board: the dots captured by the action, and the current color, number of
+ * steps and modes before and after it.
+ *
+ * A delta is opened before the action; the model then logs every dot it
+ * captures into it. The values after the action are read when the action is
+ * undone, since the model has not changed since then.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class GameDelta {
+
+    private IntStack capturedDots;
+
+    private int colorBefore, colorAfter;
+    private int stepsBefore, stepsAfter;
+    private boolean torusBefore, torusAfter;
+    private boolean diagonalBefore, diagonalAfter;
+
+    /**
+     * Constructor, called before an action. It records the state of the model,
+     * and starts logging the dots it captures.
+     * 
+     * @param model
+     *            the model of the game
+     */
+    public GameDelta(GameModel model) {
+
+        capturedDots = new IntStack(1);
+        colorBefore = model.getCurrentSelectedColor();
+        stepsBefore = model.getNumberOfSteps();
+        torusBefore = model.isTorusMode();
+        diagonalBefore = model.isDiagonalMode();
+        model.setCaptureLog(capturedDots);
+    }
+
+    /**
+     * Stops logging the captured dots; the action is over.
+     * 
+     * @param model
+     *            the model of the game
+     */
+    public void close(GameModel model) {
+
+        model.setCaptureLog(null);
+        capturedDots.trimToSize();
+    }
+
+    /**
+     * Undoes the action. The model must be in the state the action left it in.
+     * 
+     * @param model
+     *            the model of the game
+     */
+    public void undo(GameModel model) {
+
+        close(model);
+
+        colorAfter = model.getCurrentSelectedColor();
+        stepsAfter = model.getNumberOfSteps();
+        torusAfter = model.isTorusMode();
+        diagonalAfter = model.isDiagonalMode();
+
+        model.setTorusMode(torusBefore);
+        model.setDiagonalMode(diagonalBefore);
+        model.release(capturedDots);
+        model.setCurrentSelectedColor(colorBefore);
+        model.setNumberOfSteps(stepsBefore);
+    }
+
+    /**
+     * Redoes the action. The model must be in the state the action was undone to.
+     * 
+     * @param model
+     *            the model of the game
+     */
+    public void redo(GameModel model) {
+
+        model.setTorusMode(torusAfter);
+        model.setDiagonalMode(diagonalAfter);
+        model.recapture(capturedDots);
+        model.setCurrentSelectedColor(colorAfter);
+        model.setNumberOfSteps(stepsAfter);
+    }
+
+    /**
+     * Estimates the memory used by the delta, in bytes: the object itself and
+     * the array of captured dots.
+     * 
+     * @return the estimated footprint in bytes
+     */
+    public long getFootprint() {
+
+        return 48 + 24 + 16 + 4L * capturedDots.capacity();
+    }
+
+    /**
+     * Getter method for the number of dots captured by the action
+     * 
+     * @return the number of captured dots
+     */
+    public int getNumberOfCapturedDots() {
+
+        return capturedDots.size();
+    }
+
+}
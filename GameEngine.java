@@ -0,0 +1,163 @@
+/**
+ * The class <b>GameEngine</b> plays the game on a <b>GameModel</b> without any
+ * user interface. It applies the rules of the game (initial dot, then one color
+ * per step) and can be used headless, for instance to simulate games. It does
+ * not depend on AWT or Swing; the controller delegates its moves to it.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class GameEngine {
+
+    private GameModel theModel;
+
+    /**
+     * Constructor used for playing on an existing model.
+     * 
+     * @param model
+     *            the model of the game
+     */
+    public GameEngine(GameModel model) {
+
+        theModel = model;
+    }
+
+    /**
+     * Starts a new game on a new model.
+     * 
+     * @param size
+     *            the size of the board
+     * @param seed
+     *            the seed of the random colors
+     * @param torus
+     *            true to play on a torus, false to play on a plane
+     * @param diagonal
+     *            true to allow diagonal moves, false otherwise
+     */
+    public void newGame(int size, long seed, boolean torus, boolean diagonal) {
+
+        theModel = new GameModel(size, seed, torus, diagonal);
+    }
+
+    /**
+     * Starts a new game on a new rectangular model, with the colors of a generator.
+     * 
+     * @param width
+     *            the number of dots on a row
+     * @param height
+     *            the number of rows
+     * @param numberOfColors
+     *            the number of colors
+     * @param seed
+     *            the seed given to the generator
+     * @param torus
+     *            true to play on a torus, false to play on a plane
+     * @param diagonal
+     *            true to allow diagonal moves, false otherwise
+     * @param generator
+     *            the generator of the colors
+     */
+    public void newGame(int width, int height, int numberOfColors, long seed, boolean torus, boolean diagonal,
+                        BoardGenerator generator) {
+
+        theModel = new GameModel(width, height, numberOfColors, seed, torus, diagonal, generator);
+    }
+
+    /**
+     * Getter method for the model
+     * 
+     * @return theModel
+     */
+    public GameModel getModel() {
+
+        return theModel;
+    }
+
+    /**
+     * Setter method for the model, for instance when a previous state is restored
+     * 
+     * @param model
+     *            the new model of the game
+     */
+    public void setModel(GameModel model) {
+
+        theModel = model;
+    }
+
+    /**
+     * Selects the first dot of the game. The dot is captured along with every dot of
+     * the same color connected to it, which counts as the zeroth step. Nothing happens
+     * if the game has already started.
+     * 
+     * @param x
+     *            the x coordinate of the dot
+     * @param y
+     *            the y coordinate of the dot
+     * @return the number of captured dots
+     */
+    public int selectInitialDot(int x, int y) {
+
+        if (theModel.getNumberOfSteps() >= 0) {
+            return 0;
+        }
+
+        int captured = theModel.captureComponent(x, y);
+        theModel.setCurrentSelectedColor(theModel.getDotColor(x, y));
+        theModel.step();
+
+        return captured;
+    }
+
+    /**
+     * Applies the logic of the game for a newly selected color. If the game has not
+     * started yet, it starts from the dot (0,0) first. Selecting the current color
+     * does nothing and does not count as a step.
+     * 
+     * @param color
+     *            the newly selected color
+     * @return the number of dots captured by this move
+     */
+    public int applyMove(int color) {
+
+        if (color < 0 || color >= theModel.getNumberOfColors()) {
+            throw new IllegalArgumentException("No such color: " + color);
+        }
+
+        int captured = 0;
+
+        if (theModel.getNumberOfSteps() < 0) {
+            captured = selectInitialDot(0, 0);
+        }
+
+        if (theModel.getCurrentSelectedColor() == color) {
+            return captured;
+        }
+
+        theModel.setCurrentSelectedColor(color);
+        captured += theModel.flood(color);
+        theModel.step();
+
+        return captured;
+    }
+
+    /**
+     * Returns true iff the game is finished, that is, all the dots are captured.
+     *
+     * @return true if the game is finished, false otherwise
+     */
+    public boolean isFinished() {
+
+        return theModel.isFinished();
+    }
+
+    /**
+     * Getter method for the current number of steps
+     * 
+     * @return the current number of steps
+     */   
+    public int steps() {
+
+        return theModel.getNumberOfSteps();
+    }
+
+}
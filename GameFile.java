@@ -0,0 +1,321 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The class <b>GameFile</b> saves and restores a <b>GameModel</b> in a compact,
+ * versioned binary format, written and read through a <b>FileChannel</b>.
+ *
+ * The file starts with a header:
+ * - the magic number "FLIT" and the version of the format
+ * - the number of bits per color, and the mode flags (torus, diagonal)
+ * - the height of the board, the number of steps and the current color
+ * - the number of colors of the game (since version 2; six in version 1)
+ * - the width of the board (since version 3; square boards before)
+ * followed by the colors, then the captured bitset. The colors are packed by
+ * blocks of 64 dots as bit planes: for b bits per color, a block is b longs, and
+ * bit i of long p is bit p of the color of dot i of the block. b is the smallest
+ * number of bits holding every color: 1 for 2 colors, 3 for 6, 4 for 16...
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class GameFile {
+
+    public static final int MAGIC   = 0x464C4954;   // "FLIT"
+    public static final int VERSION = 3;
+
+    private static final int TORUS_FLAG    = 1;
+    private static final int DIAGONAL_FLAG = 2;
+
+    private static final int BUFFER_SIZE    = 1 << 20;
+
+    /**
+     * Saves a model in a file
+     *
+     * @param model
+     *            the model to save
+     * @param file
+     *            the file, created or overwritten
+     * @throws IOException
+     *            if the file cannot be written
+     */
+    public static void save(GameModel model, File file) throws IOException {
+
+        Board board = model.getBoard();
+        int bitsPerColor = bitsPerColor(model.getNumberOfColors());
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        try {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+            buffer.putInt(MAGIC);
+            buffer.putShort((short) VERSION);
+            buffer.put((byte) bitsPerColor);
+            buffer.put((byte) ((model.isTorusMode() ? TORUS_FLAG : 0) | (model.isDiagonalMode() ? DIAGONAL_FLAG : 0)));
+            buffer.putInt(board.getHeight());
+            buffer.putInt(model.getNumberOfSteps());
+            buffer.putInt(model.getCurrentSelectedColor());
+            buffer.putShort((short) model.getNumberOfColors());
+            buffer.putInt(board.getWidth());
+
+            long[] planes = new long[bitsPerColor];
+            int length = board.length();
+
+            for (int block = 0; block < length; block += 64) {
+                for (int p = 0; p < bitsPerColor; p++) {
+                    planes[p] = 0;
+                }
+                int end = Math.min(block + 64, length);
+                for (int i = block; i < end; i++) {
+                    int color = board.getColor(i);
+                    for (int p = 0; p < bitsPerColor; p++) {
+                        planes[p] |= (long) ((color >>> p) & 1) << (i - block);
+                    }
+                }
+                for (int p = 0; p < bitsPerColor; p++) {
+                    putLong(channel, buffer, planes[p]);
+                }
+            }
+
+            for (int w = 0; w < board.getCapturedWordCount(); w++) {
+                putLong(channel, buffer, board.getCapturedWord(w));
+            }
+
+            flush(channel, buffer);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Restores a model from a file
+     *
+     * @param file
+     *            the file to read
+     * @return the saved model
+     * @throws IOException
+     *            if the file cannot be read, or is not a saved game
+     */
+    public static GameModel load(File file) throws IOException {
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.flip();
+
+            fill(channel, buffer, 20);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a saved game.");
+            }
+            int version = buffer.getShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported version of saved game: " + version);
+            }
+            int bits = buffer.get();
+            int flags = buffer.get();
+            int height = buffer.getInt();
+            int steps = buffer.getInt();
+            int color = buffer.getInt();
+            int numberOfColors = GameModel.NUMBER_OF_COLORS;
+            if (version >= 2) {
+                fill(channel, buffer, 2);
+                numberOfColors = buffer.getShort();
+            }
+            int width = height;
+            if (version >= 3) {
+                fill(channel, buffer, 4);
+                width = buffer.getInt();
+            }
+
+            if (bits < 1 || bits > 8 || width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE
+                || numberOfColors < GameModel.MIN_NUMBER_OF_COLORS || numberOfColors > GameModel.MAX_NUMBER_OF_COLORS
+                || !isValidState(steps, color, numberOfColors)) {
+                throw new IOException("Corrupted saved game.");
+            }
+
+            TiledBoard board = new TiledBoard(width, height);
+            int length = board.length();
+            long[] planes = new long[bits];
+
+            for (int block = 0; block < length; block += 64) {
+                fill(channel, buffer, 8 * bits);
+                for (int p = 0; p < bits; p++) {
+                    planes[p] = buffer.getLong();
+                }
+                int end = Math.min(block + 64, length);
+                for (int i = block; i < end; i++) {
+                    int c = 0;
+                    for (int p = 0; p < bits; p++) {
+                        c |= (int) ((planes[p] >>> (i - block)) & 1) << p;
+                    }
+                    if (c >= numberOfColors) {
+                        throw new IOException("Corrupted saved game.");
+                    }
+                    board.setColor(i, c);
+                }
+            }
+
+            for (int w = 0; w < board.getCapturedWordCount(); w++) {
+                fill(channel, buffer, 8);
+                board.setCapturedWord(w, buffer.getLong());
+            }
+
+            return new GameModel(board, steps, color, (flags & TORUS_FLAG) != 0, (flags & DIAGONAL_FLAG) != 0,
+                numberOfColors);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Checks the steps and the current color of a saved game: a color of the game,
+     * or -1 before the first step
+     *
+     * @param steps
+     *            the number of steps, -1 before the first step
+     * @param color
+     *            the current color
+     * @param numberOfColors
+     *            the number of colors of the game
+     * @return true if they can be those of a game
+     */
+    static boolean isValidState(int steps, int color, int numberOfColors) {
+
+        return steps >= -1 && color >= (steps < 0 ? -1 : 0) && color < numberOfColors;
+    }
+
+    /**
+     * Saves a model in a memory-mapped file (see <b>MappedBoard</b>), and makes the
+     * model play on that file from now on, so that the next saves are checkpoints
+     *
+     * @param model
+     *            the model to save
+     * @param file
+     *            the file, created or overwritten
+     * @throws IOException
+     *            if the file cannot be written
+     */
+    public static void saveMapped(GameModel model, File file) throws IOException {
+
+        MappedBoard mapped = MappedBoard.create(file, model.getBoard());
+        model.board = mapped;
+        checkpoint(model);
+    }
+
+    /**
+     * Restores a model from a memory-mapped file. The board is not read: the model
+     * plays directly on the file, which is updated in place.
+     *
+     * @param file
+     *            the file to map
+     * @return the saved model
+     * @throws IOException
+     *            if the file cannot be mapped, or is not a mapped saved game
+     */
+    public static GameModel loadMapped(File file) throws IOException {
+
+        MappedBoard mapped = MappedBoard.open(file);
+        try {
+            return new GameModel(mapped, mapped.getSavedSteps(), mapped.getSavedColor(),
+                mapped.getSavedTorusMode(), mapped.getSavedDiagonalMode(), mapped.getSavedNumberOfColors());
+        } catch (RuntimeException e) {
+            mapped.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the state of a model playing on a memory-mapped file in its header,
+     * without flushing the file. It must be called after every change of the model,
+     * since the board of the file is changed in place.
+     *
+     * @param model
+     *            the model to save
+     * @return false if the model does not play on a mapped file
+     */
+    public static boolean writeState(GameModel model) {
+
+        if (!(model.getBoard() instanceof MappedBoard)) {
+            return false;
+        }
+        ((MappedBoard) model.getBoard()).writeState(model.getNumberOfSteps(), model.getCurrentSelectedColor(),
+            model.isTorusMode(), model.isDiagonalMode(), model.getNumberOfColors());
+        return true;
+    }
+
+    /**
+     * Saves a model playing on a memory-mapped file in place: only the header is
+     * written, and the pages of the board that changed are flushed
+     *
+     * @param model
+     *            the model to save
+     * @return false if the model does not play on a mapped file
+     */
+    public static boolean checkpoint(GameModel model) {
+
+        if (!(model.getBoard() instanceof MappedBoard)) {
+            return false;
+        }
+        ((MappedBoard) model.getBoard()).checkpoint(model.getNumberOfSteps(), model.getCurrentSelectedColor(),
+            model.isTorusMode(), model.isDiagonalMode(), model.getNumberOfColors());
+        return true;
+    }
+
+    /**
+     * Returns the number of bits needed to store the colors of a game
+     *
+     * @param numberOfColors
+     *            the number of colors
+     * @return the number of bits per color, at least 1
+     */
+    public static int bitsPerColor(int numberOfColors) {
+
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(numberOfColors - 1));
+    }
+
+    /**
+     * Puts a long in the buffer, writing the buffer to the channel when it is full
+     */
+    private static void putLong(FileChannel channel, ByteBuffer buffer, long value) throws IOException {
+
+        if (buffer.remaining() < 8) {
+            flush(channel, buffer);
+        }
+        buffer.putLong(value);
+    }
+
+    /**
+     * Writes the content of the buffer to the channel, and clears it
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Makes sure the buffer holds at least the given number of bytes to read
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Truncated saved game.");
+            }
+        }
+        buffer.flip();
+    }
+
+}
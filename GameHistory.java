@@ -0,0 +1,280 @@
+/**
+ * The class <b>GameHistory</b> holds the actions that can be undone and redone,
+ * as <b>GameDelta</b> instances, in a bounded circular buffer. When the history
+ * holds more than its maximum depth, or uses more than its memory budget, the
+ * oldest actions are forgotten.
+ *
+ * The buffer is a timeline: the actions before the cursor can be undone, the
+ * ones after it can be redone. Saving a new action drops the ones that could be
+ * redone. The most recent action stays open, logging the dots captured by the
+ * model, until the next one is saved or it is undone.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class GameHistory {
+
+    public static final int DEFAULT_MAX_DEPTH  = 1000;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private GameDelta[] deltas;
+    private int first;      // position of the oldest action in the buffer
+    private int cursor;     // number of actions that can be undone
+    private int size;       // number of actions, undoable and redoable
+    private boolean open;   // true if the action before the cursor is still logging
+
+    private int maxDepth;
+    private long maxBytes;
+    private long bytes;     // footprint of the closed actions
+
+    /**
+     * Constructor with the default depth and memory budget
+     */
+    public GameHistory() {
+
+        this(DEFAULT_MAX_DEPTH, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param maxDepth
+     *            the maximum number of actions kept (at least 1)
+     * @param maxBytes
+     *            the memory budget of the history, in bytes
+     */
+    public GameHistory(int maxDepth, long maxBytes) {
+
+        this.maxDepth = Math.max(maxDepth, 1);
+        this.maxBytes = maxBytes;
+        clear();
+    }
+
+    /**
+     * Saves the state of the model before an action, so that it can be undone.
+     * The actions that could be redone are dropped.
+     * 
+     * @param model
+     *            the model of the game
+     */
+    public void save(GameModel model) {
+
+        closeLast(model);
+        clearRedo();
+
+        if (size == maxDepth) {
+            evictOldest();
+        }
+        if (size == deltas.length) {
+            grow();
+        }
+
+        deltas[slot(size)] = new GameDelta(model);
+        size++;
+        cursor++;
+        open = true;
+
+        shrink();
+    }
+
+    /**
+     * Undoes the most recent action
+     * 
+     * @param model
+     *            the model of the game
+     */
+    public void undo(GameModel model) {
+
+        if (!canUndo()) {
+            throw new EmptyStackException("No action to undo.");
+        }
+        closeLast(model);
+        cursor--;
+        deltas[slot(cursor)].undo(model);
+    }
+
+    /**
+     * Redoes the most recently undone action
+     * 
+     * @param model
+     *            the model of the game
+     */
+    public void redo(GameModel model) {
+
+        if (!canRedo()) {
+            throw new EmptyStackException("No action to redo.");
+        }
+        deltas[slot(cursor)].redo(model);
+        cursor++;
+    }
+
+    /**
+     * Returns true if an action can be undone
+     * 
+     * @return true if there is an action before the cursor
+     */
+    public boolean canUndo() {
+
+        return cursor > 0;
+    }
+
+    /**
+     * Returns true if an action can be redone
+     * 
+     * @return true if there is an action after the cursor
+     */
+    public boolean canRedo() {
+
+        return cursor < size;
+    }
+
+    /**
+     * Forgets every action, in constant time
+     */
+    public void clear() {
+
+        deltas = new GameDelta[Math.min(INITIAL_CAPACITY, maxDepth)];
+        first = 0;
+        cursor = 0;
+        size = 0;
+        open = false;
+        bytes = 0;
+    }
+
+    /**
+     * Forgets the actions that could be redone
+     */
+    public void clearRedo() {
+
+        while (size > cursor) {
+            size--;
+            bytes -= deltas[slot(size)].getFootprint();
+            deltas[slot(size)] = null;
+        }
+    }
+
+    /**
+     * Getter method for the number of actions that can be undone
+     * 
+     * @return cursor
+     */
+    public int getUndoDepth() {
+
+        return cursor;
+    }
+
+    /**
+     * Getter method for the number of actions that can be redone
+     * 
+     * @return the number of actions after the cursor
+     */
+    public int getRedoDepth() {
+
+        return size - cursor;
+    }
+
+    /**
+     * Estimates the memory used by the actions of the history, in bytes
+     * 
+     * @return the estimated footprint in bytes
+     */
+    public long getFootprint() {
+
+        long footprint = bytes;
+        if (open) {
+            footprint += deltas[slot(cursor - 1)].getFootprint();
+        }
+        return footprint;
+    }
+
+    /**
+     * Setter method for the maximum depth; older actions are forgotten if needed
+     * 
+     * @param maxDepth
+     *            the maximum number of actions kept (at least 1)
+     */
+    public void setMaxDepth(int maxDepth) {
+
+        this.maxDepth = Math.max(maxDepth, 1);
+        shrink();
+    }
+
+    /**
+     * Setter method for the memory budget; older actions are forgotten if needed
+     * 
+     * @param maxBytes
+     *            the memory budget of the history, in bytes
+     */
+    public void setMaxBytes(long maxBytes) {
+
+        this.maxBytes = maxBytes;
+        shrink();
+    }
+
+    /**
+     * Stops the logging of the most recent action, and counts its footprint
+     */
+    private void closeLast(GameModel model) {
+
+        if (open) {
+            GameDelta last = deltas[slot(cursor - 1)];
+            last.close(model);
+            bytes += last.getFootprint();
+            open = false;
+        }
+    }
+
+    /**
+     * Forgets actions until the history fits its depth and memory budget. The
+     * oldest actions that can be undone go first; if there is none, the actions
+     * that would be redone last. The open action is always kept.
+     */
+    private void shrink() {
+
+        while (size > maxDepth || (size > 1 && getFootprint() > maxBytes)) {
+            if (cursor > 1 || (cursor == 1 && !open)) {
+                evictOldest();
+            } else {
+                size--;
+                bytes -= deltas[slot(size)].getFootprint();
+                deltas[slot(size)] = null;
+            }
+        }
+    }
+
+    /**
+     * Forgets the oldest action, which must be closed and undoable
+     */
+    private void evictOldest() {
+
+        bytes -= deltas[first].getFootprint();
+        deltas[first] = null;
+        first = (first + 1) % deltas.length;
+        size--;
+        cursor--;
+    }
+
+    /**
+     * Doubles the capacity of the buffer, up to the maximum depth
+     */
+    private void grow() {
+
+        GameDelta[] larger = new GameDelta[Math.min(2 * deltas.length, maxDepth)];
+        for (int i = 0; i < size; i++) {
+            larger[i] = deltas[slot(i)];
+        }
+        deltas = larger;
+        first = 0;
+    }
+
+    /**
+     * Position in the buffer of the i-th oldest action
+     */
+    private int slot(int i) {
+
+        return (first + i) % deltas.length;
+    }
+
+}
@@ -1,261 +1,1165 @@
-import java.util.Random;
-import java.io.*;
-
-/**
- * The class <b>GameModel</b> holds the model, the state of the systems. 
- * It stores the following information:
- * - the state of all the ``dots'' on the board (color, captured or not)
- * - the size of the board
- * - the number of steps since the last reset
- * - the current color of selection
- *
- * The model provides all of this informations to the other classes through 
- *  appropriate Getters. 
- * The controller can also update the model through Setters.
- * Finally, the model is also in charge of initializing the game
- *
- * @author Weiyun Lu, University of Ottawa
- */
-
-public class GameModel implements Cloneable, Serializable {
-
-
-    /**
-     * predefined values to capture the color of a DotInfo
-     */
-
-    public static final int COLOR_0           = 0;
-    public static final int COLOR_1           = 1;
-    public static final int COLOR_2           = 2;
-    public static final int COLOR_3           = 3;
-    public static final int COLOR_4           = 4;
-    public static final int COLOR_5           = 5;
-    public static final int NUMBER_OF_COLORS  = 6;
-
-
-    private int gameSize;
-    private int currentColor;
-    private int steps;
-    protected int capturedDots;
-
-    protected DotInfo[][] model;
-
-    protected boolean torusMode;
-    protected boolean diagonalMode;
-
-    Random random = new Random();
-
-    /**
-     * Constructor to initialize the model to a given size of board.
-     * 
-     * @param size
-     *            the size of the board
-     */
-    public GameModel(int size) {
-
-        gameSize = size;
-        model = new DotInfo[size][size];
-        torusMode = false;
-        diagonalMode = false;
-        reset();
-
-    }
-
-
-    /**
-     * Resets the model to (re)start a game. The previous game (if there is one)
-     * is cleared up . 
-     */
-    public void reset(){
-
-            
-        // We initialize to -1 because before the player chooses his first color, we must "autoplay" the zeroth turn by pre-capturing
-        // adjacent dots that already match the top-left dot (if any), which then puts steps to 0.
-        steps = -1;
-        capturedDots = 0;
-
-        for (int x = 0; x < gameSize; x++) {
-            for (int y = 0; y < gameSize; y++) {
-                model[x][y] = new DotInfo(x, y, random.nextInt(6));
-            }
-        }
-
-    }
-
-
-    /**
-     * Getter method for the size of the game
-     * 
-     * @return the value of the attribute sizeOfGame
-     */   
-    public int getSize(){
-
-        return gameSize;
-    }
-
-    /**
-     * returns the current color  of a given dot in the game
-     * 
-     * @param i
-     *            the x coordinate of the dot
-     * @param j
-     *            the y coordinate of the dot
-     * @return the status of the dot at location (i,j)
-     */   
-    public int getColor(int i, int j){
-        if (model[i][j].isCaptured()) {
-            return currentColor;
-        } else {
-            return model[i][j].getColor();
-        }
-    }
-
-    /**
-     * returns true if the dot is captured, false otherwise
-    * 
-     * @param i
-     *            the x coordinate of the dot
-     * @param j
-     *            the y coordinate of the dot
-     * @return the status of the dot at location (i,j)
-     */   
-    public boolean isCaptured(int i, int j){
-
-        return model[i][j].isCaptured();
-    }
-
-    /**
-     * Sets the status of the dot at coordinate (i,j) to captured
-     * 
-     * @param i
-     *            the x coordinate of the dot
-     * @param j
-     *            the y coordinate of the dot
-     */   
-    public void capture(int i, int j){
-        capturedDots++;
-        model[i][j].setCaptured(true);
-    }
-
-
-    /**
-     * Getter method for the current number of steps
-     * 
-     * @return the current number of steps
-     */   
-    public int getNumberOfSteps(){
-
-        return steps;
-    }
-
-    /**
-     * Setter method for currentSelectedColor
-     * 
-     * @param val
-     *            the new value for currentSelectedColor
-    */   
-    public void setCurrentSelectedColor(int val) {
-
-        currentColor = val;
-    }
-
-    /**
-     * Getter method for currentSelectedColor
-     * 
-     * @return currentSelectedColor
-     */   
-    public int getCurrentSelectedColor() {
-
-        return currentColor;
-    }
-
-
-    /**
-     * Getter method for the model's dotInfo reference
-     * at location (i,j)
-     *
-      * @param i
-     *            the x coordinate of the dot
-     * @param j
-     *            the y coordinate of the dot
-     *
-     * @return model[i][j]
-     */   
-    public DotInfo get(int i, int j) {
-
-        return model[i][j];
-    }
-
-
-   /**
-     * The method <b>step</b> updates the number of steps. It must be called 
-     * once the model has been updated after the player selected a new color.
-     */
-    public void step(){
-
-        steps ++;
-    }
- 
-   /**
-     * The method <b>isFinished</b> returns true iff the game is finished, that
-     * is, all the dots are captured.
-     *
-     * @return true if the game is finished, false otherwise
-     */
-    public boolean isFinished(){
-
-        return capturedDots == gameSize * gameSize;
-        // for (int x = 0; x < gameSize; x++) {
-        //    for (int y = 0; y < gameSize; y++) {
-        //        if (!model[x][y].isCaptured())
-        //            return false;
-        //    }
-        //}
-        //return true;
-    }
-
-    /**
-     * Clones the game model
-     *
-     * @return modelCopy
-     */
-
-    public GameModel clone() throws CloneNotSupportedException {
-
-        GameModel modelCopy = (GameModel) super.clone();
-        modelCopy.model = new DotInfo[gameSize][gameSize];
-
-        for (int x = 0; x < gameSize; x++) {
-            for (int y = 0; y < gameSize; y++) {
-                modelCopy.model[x][y] = model[x][y].clone();
-            }
-        }
-
-        return modelCopy;
-    }
-
-   /**
-     * Builds a String representation of the model
-     *
-     * @return String representation of the model
-     */
-    public String toString(){
-
-        String output = new String();
-
-        for (int x = 0; x < gameSize; x++) {
-            for (int y = 0; y < gameSize; y++) {
-                if (model[x][y].isCaptured()) {
-                    output += currentColor + " ";
-                } else {
-                    output += Integer.toString(model[x][y].getColor()) + " ";
-                }
-            }
-            output += "\n";
-        }
-
-        output += "Steps: " + Integer.toString(steps);
-
-        return output;
-    }
-}
+import java.util.Arrays;
+import java.util.Random;
+import java.io.*;
+
+/**
+ * The class <b>GameModel</b> holds the model, the state of the systems. 
+ * It stores the following information:
+ * - the state of all the ``dots'' on the board (color, captured or not),
+ *   in a <b>Board</b>: in memory in copy-on-write tiles (<b>TiledBoard</b>), so that
+ *   a clone shares the board until one of them writes it, or mapped from a file
+ * - the size of the board
+ * - the number of steps since the last reset
+ * - the current color of selection
+ * - the graph of the connected components of the board, and the frontier of
+ *   the captured region: the free components adjacent to it, bucketed by color
+ *
+ * The model provides all of this informations to the other classes through 
+ *  appropriate Getters. 
+ * The controller can also update the model through Setters.
+ * Finally, the model is also in charge of initializing the game
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class GameModel implements Cloneable, Serializable {
+
+
+    /**
+     * predefined values to capture the color of a DotInfo
+     */
+
+    public static final int COLOR_0           = 0;
+    public static final int COLOR_1           = 1;
+    public static final int COLOR_2           = 2;
+    public static final int COLOR_3           = 3;
+    public static final int COLOR_4           = 4;
+    public static final int COLOR_5           = 5;
+    public static final int NUMBER_OF_COLORS  = 6;
+
+    /**
+     * bounds of the number of colors of a game, NUMBER_OF_COLORS by default.
+     * The solvers give each color one bit of an int.
+     */
+
+    public static final int MIN_NUMBER_OF_COLORS = 2;
+    public static final int MAX_NUMBER_OF_COLORS = 32;
+
+
+    private int width;      // number of dots on a row (y coordinates)
+    private int height;     // number of rows (x coordinates)
+    private int numberOfColors;
+    private int currentColor;
+    private int steps;
+    protected int capturedDots;
+
+    protected Board board;
+
+    protected boolean torusMode;
+    protected boolean diagonalMode;
+
+    // The colors of each game come from the generator, with a seed of their
+    // own, drawn from random: a game is reproduced from its seed alone.
+    Random random = new Random();
+    private BoardGenerator generator = new UniformGenerator();
+    private long seed;
+
+    // Zobrist hash of the state: the keys of the captured dots and the key of the
+    // current color, xored together. It is updated with every capture, release and
+    // change of color, so that a state reached by different moves has one hash.
+    private long zobristHash;
+
+    private static final long ZOBRIST_SEED = 0x5A0B215A17L;
+
+    // The component graph is computed at reset, and rebuilt from the board
+    // whenever it is null (after a change of mode or deserialization). The
+    // frontier holds components of the graph, it is rebuilt in place when
+    // it is not valid. Its stacks are kept from one move to the next, so
+    // that a move does not allocate anything.
+    private transient ComponentGraph graph;
+    private transient IntStack[] frontier;
+    private transient boolean[] queued;
+    private transient boolean frontierValid;
+
+    // When set, every newly captured dot is pushed on this stack, so that
+    // the history can record what a move did.
+    private transient IntStack captureLog;
+
+    // Dots whose color on screen changed since the view last drew the board,
+    // so that it only repaints those. A change of the current color recolors
+    // the whole captured region: it is recorded once, not dot by dot. When too
+    // many dots changed (or nobody draws the board), everything is redrawn.
+    private transient IntStack changedDots;
+    private transient boolean regionRecolored;
+    private transient boolean boardChanged = true;
+
+    /**
+     * Constructor to initialize the model to a given size of board.
+     * 
+     * @param size
+     *            the size of the board
+     */
+    public GameModel(int size) {
+
+        this(size, NUMBER_OF_COLORS);
+
+    }
+
+    /**
+     * Constructor to initialize the model to a given size of board and
+     * number of colors.
+     * 
+     * @param size
+     *            the size of the board
+     * @param numberOfColors
+     *            the number of colors, between MIN_NUMBER_OF_COLORS and MAX_NUMBER_OF_COLORS
+     */
+    public GameModel(int size, int numberOfColors) {
+
+        this(size, size, numberOfColors);
+
+    }
+
+    /**
+     * Constructor to initialize the model to a rectangular board of a given
+     * number of colors.
+     * 
+     * @param width
+     *            the number of dots on a row
+     * @param height
+     *            the number of rows
+     * @param numberOfColors
+     *            the number of colors, between MIN_NUMBER_OF_COLORS and MAX_NUMBER_OF_COLORS
+     */
+    public GameModel(int width, int height, int numberOfColors) {
+
+        this.width = width;
+        this.height = height;
+        this.numberOfColors = checkNumberOfColors(numberOfColors);
+        board = new TiledBoard(width, height);
+        torusMode = false;
+        diagonalMode = false;
+        reset();
+
+    }
+
+    /**
+     * Constructor to initialize the model to a given size of board, with
+     * reproducible random colors and the given modes.
+     * 
+     * @param size
+     *            the size of the board
+     * @param seed
+     *            the seed of the random colors
+     * @param torus
+     *            true to play on a torus, false to play on a plane
+     * @param diagonal
+     *            true to allow diagonal moves, false otherwise
+     */
+    public GameModel(int size, long seed, boolean torus, boolean diagonal) {
+
+        this(size, seed, torus, diagonal, new UniformGenerator());
+
+    }
+
+    /**
+     * Constructor to initialize the model to a given size of board, with
+     * reproducible colors from a generator, and the given modes. The first
+     * game uses the seed itself, the next ones seeds drawn from it.
+     * 
+     * @param size
+     *            the size of the board
+     * @param seed
+     *            the seed of the colors
+     * @param torus
+     *            true to play on a torus, false to play on a plane
+     * @param diagonal
+     *            true to allow diagonal moves, false otherwise
+     * @param generator
+     *            the generator of the colors
+     */
+    public GameModel(int size, long seed, boolean torus, boolean diagonal, BoardGenerator generator) {
+
+        this(size, NUMBER_OF_COLORS, seed, torus, diagonal, generator);
+
+    }
+
+    /**
+     * Constructor to initialize the model to a given size of board and number
+     * of colors, with reproducible colors from a generator, and the given modes.
+     * The first game uses the seed itself, the next ones seeds drawn from it.
+     * 
+     * @param size
+     *            the size of the board
+     * @param numberOfColors
+     *            the number of colors, between MIN_NUMBER_OF_COLORS and MAX_NUMBER_OF_COLORS
+     * @param seed
+     *            the seed of the colors
+     * @param torus
+     *            true to play on a torus, false to play on a plane
+     * @param diagonal
+     *            true to allow diagonal moves, false otherwise
+     * @param generator
+     *            the generator of the colors
+     */
+    public GameModel(int size, int numberOfColors, long seed, boolean torus, boolean diagonal,
+                     BoardGenerator generator) {
+
+        this(size, size, numberOfColors, seed, torus, diagonal, generator);
+
+    }
+
+    /**
+     * Constructor to initialize the model to a rectangular board of a given number
+     * of colors, with reproducible colors from a generator, and the given modes.
+     * The first game uses the seed itself, the next ones seeds drawn from it.
+     * 
+     * @param width
+     *            the number of dots on a row
+     * @param height
+     *            the number of rows
+     * @param numberOfColors
+     *            the number of colors, between MIN_NUMBER_OF_COLORS and MAX_NUMBER_OF_COLORS
+     * @param seed
+     *            the seed of the colors
+     * @param torus
+     *            true to play on a torus, false to play on a plane
+     * @param diagonal
+     *            true to allow diagonal moves, false otherwise
+     * @param generator
+     *            the generator of the colors
+     */
+    public GameModel(int width, int height, int numberOfColors, long seed, boolean torus, boolean diagonal,
+                     BoardGenerator generator) {
+
+        this.width = width;
+        this.height = height;
+        this.numberOfColors = checkNumberOfColors(numberOfColors);
+        board = new TiledBoard(width, height);
+        torusMode = torus;
+        diagonalMode = diagonal;
+        random = new Random(seed);
+        this.generator = generator;
+        reset(seed);
+
+    }
+
+
+    /**
+     * Constructor to restore a saved game from its board, without generating a new one.
+     * 
+     * @param board
+     *            the board of the saved game
+     * @param steps
+     *            the number of steps played
+     * @param color
+     *            the current color of selection
+     * @param torus
+     *            true to play on a torus, false to play on a plane
+     * @param diagonal
+     *            true to allow diagonal moves, false otherwise
+     */
+    public GameModel(Board board, int steps, int color, boolean torus, boolean diagonal) {
+
+        this(board, steps, color, torus, diagonal, NUMBER_OF_COLORS);
+
+    }
+
+    /**
+     * Constructor to restore a saved game with a given number of colors from
+     * its board, without generating a new one.
+     * 
+     * @param board
+     *            the board of the saved game
+     * @param steps
+     *            the number of steps played
+     * @param color
+     *            the current color of selection
+     * @param torus
+     *            true to play on a torus, false to play on a plane
+     * @param diagonal
+     *            true to allow diagonal moves, false otherwise
+     * @param numberOfColors
+     *            the number of colors, between MIN_NUMBER_OF_COLORS and MAX_NUMBER_OF_COLORS
+     */
+    public GameModel(Board board, int steps, int color, boolean torus, boolean diagonal, int numberOfColors) {
+
+        width = board.getWidth();
+        height = board.getHeight();
+        this.numberOfColors = checkNumberOfColors(numberOfColors);
+        this.board = board;
+        this.steps = steps;
+        currentColor = color;
+        torusMode = torus;
+        diagonalMode = diagonal;
+        capturedDots = board.countCaptured();
+        zobristHash = computeZobristHash();
+
+    }
+
+    /**
+     * Checks that a number of colors is supported
+     * 
+     * @param numberOfColors
+     *            the number of colors
+     * @return numberOfColors
+     */
+    private static int checkNumberOfColors(int numberOfColors) {
+
+        if (numberOfColors < MIN_NUMBER_OF_COLORS || numberOfColors > MAX_NUMBER_OF_COLORS) {
+            throw new IllegalArgumentException("The number of colors must be between " + MIN_NUMBER_OF_COLORS
+                + " and " + MAX_NUMBER_OF_COLORS + ": " + numberOfColors);
+        }
+        return numberOfColors;
+    }
+
+    /**
+     * Getter method for the number of colors of the game
+     * 
+     * @return numberOfColors
+     */
+    public int getNumberOfColors() {
+
+        return numberOfColors;
+    }
+
+    /**
+     * Getter method for the seed of the current game
+     * 
+     * @return the seed given to the generator, 0 for a restored game
+     */
+    public long getSeed() {
+
+        return seed;
+    }
+
+    /**
+     * Getter method for the generator of the colors
+     * 
+     * @return generator
+     */
+    public BoardGenerator getGenerator() {
+
+        return generator;
+    }
+
+    /**
+     * Setter method for the generator of the colors, used from the next reset
+     * 
+     * @param generator
+     *            the new generator
+     */
+    public void setGenerator(BoardGenerator generator) {
+
+        this.generator = generator;
+    }
+
+    /**
+     * Getter method for the board of the model
+     * 
+     * @return board
+     */
+    public Board getBoard() {
+
+        return board;
+    }
+
+    /**
+     * Resets the model to (re)start a game. The previous game (if there is one)
+     * is cleared up . 
+     */
+    public void reset(){
+
+        reset(random.nextLong());
+    }
+
+    /**
+     * Resets the model to (re)start a game with the colors of a given seed.
+     * The previous game (if there is one) is cleared up.
+     * 
+     * @param seed
+     *            the seed of the colors, given to the generator
+     */
+    public void reset(long seed){
+
+        // We initialize to -1 because before the player chooses his first color, we must "autoplay" the zeroth turn by pre-capturing
+        // adjacent dots that already match the top-left dot (if any), which then puts steps to 0.
+        steps = -1;
+        capturedDots = 0;
+        board.clearCaptured();
+        zobristHash = zobristColorKey(currentColor);
+        captureLog = null;
+
+        this.seed = seed;
+        generator.generate(board, numberOfColors, seed);
+
+        graph = new ComponentGraph(this);
+        frontierValid = false;
+        boardChanged = true;
+
+    }
+
+
+    /**
+     * Getter method for the size of the game. On a rectangular board, this is
+     * the number of rows; see getWidth and getHeight.
+     * 
+     * @return the value of the attribute sizeOfGame
+     */   
+    public int getSize(){
+
+        return height;
+    }
+
+    /**
+     * Getter method for the width of the game
+     * 
+     * @return the number of dots on a row
+     */   
+    public int getWidth(){
+
+        return width;
+    }
+
+    /**
+     * Getter method for the height of the game
+     * 
+     * @return the number of rows
+     */   
+    public int getHeight(){
+
+        return height;
+    }
+
+    /**
+     * returns the current color  of a given dot in the game
+     * 
+     * @param i
+     *            the x coordinate of the dot
+     * @param j
+     *            the y coordinate of the dot
+     * @return the status of the dot at location (i,j)
+     */   
+    public int getColor(int i, int j){
+        int index = board.index(i, j);
+        if (board.isCaptured(index)) {
+            return currentColor;
+        } else {
+            return board.getColor(index);
+        }
+    }
+
+    /**
+     * returns the initial color of a given dot in the game, whether it is
+     * captured or not
+     * 
+     * @param i
+     *            the x coordinate of the dot
+     * @param j
+     *            the y coordinate of the dot
+     * @return the initial color of the dot at location (i,j)
+     */   
+    public int getDotColor(int i, int j){
+
+        return board.getColor(board.index(i, j));
+    }
+
+    /**
+     * returns true if the dot is captured, false otherwise
+    * 
+     * @param i
+     *            the x coordinate of the dot
+     * @param j
+     *            the y coordinate of the dot
+     * @return the status of the dot at location (i,j)
+     */   
+    public boolean isCaptured(int i, int j){
+
+        return board.isCaptured(board.index(i, j));
+    }
+
+    /**
+     * Sets the status of the dot at coordinate (i,j) to captured
+     * 
+     * @param i
+     *            the x coordinate of the dot
+     * @param j
+     *            the y coordinate of the dot
+     */   
+    public void capture(int i, int j){
+
+        int index = board.index(i, j);
+        if (board.isCaptured(index)) {
+            return;
+        }
+
+        capturedDots++;
+        board.capture(index);
+        zobristHash ^= zobristDotKey(index);
+        changed(index);
+        if (captureLog != null) {
+            captureLog.pushInt(index);
+        }
+
+        // a single dot only keeps the graph valid if it is a whole component;
+        // otherwise the graph is rebuilt on the next flood
+        if (graph != null) {
+            int k = graph.getComponent(index);
+            if (graph.getSize(k) == 1) {
+                if (frontierValid) {
+                    enqueueNeighbours(k);
+                }
+            } else {
+                graph = null;
+                frontierValid = false;
+            }
+        }
+    }
+
+    /**
+     * Captures the dot at coordinate (i,j) together with every dot of the same
+     * color connected to it. This is how the player starts the game.
+     * 
+     * @param i
+     *            the x coordinate of the dot
+     * @param j
+     *            the y coordinate of the dot
+     * @return the number of newly captured dots
+     */   
+    public int captureComponent(int i, int j){
+
+        prepareFrontier();
+
+        int before = capturedDots;
+        int k = graph.getComponent(board.index(i, j));
+        if (!board.isCaptured(graph.getDot(k, 0))) {
+            captureComponent(k);
+        }
+        return capturedDots - before;
+    }
+
+    /**
+     * Sets the stack on which every newly captured dot is pushed, by index.
+     * 
+     * @param log
+     *            the stack receiving the captured dots, or null to stop logging
+     */   
+    public void setCaptureLog(IntStack log) {
+
+        captureLog = log;
+    }
+
+    /**
+     * Releases dots, which are no longer captured. This is used to undo moves.
+     * 
+     * @param dots
+     *            the indexes of the dots to release
+     */   
+    public void release(IntStack dots) {
+
+        for (int n = 0; n < dots.size(); n++) {
+            int index = dots.get(n);
+            if (board.isCaptured(index)) {
+                board.release(index);
+                zobristHash ^= zobristDotKey(index);
+                capturedDots--;
+                changed(index);
+            }
+        }
+        checkGraph(dots);
+    }
+
+    /**
+     * Captures dots again. This is used to redo moves.
+     * 
+     * @param dots
+     *            the indexes of the dots to capture
+     */   
+    public void recapture(IntStack dots) {
+
+        for (int n = 0; n < dots.size(); n++) {
+            int index = dots.get(n);
+            if (!board.isCaptured(index)) {
+                board.capture(index);
+                zobristHash ^= zobristDotKey(index);
+                capturedDots++;
+                changed(index);
+            }
+        }
+        checkGraph(dots);
+    }
+
+    /**
+     * After dots were released or captured again, the frontier must be rebuilt,
+     * and the graph as well if one of its components is now partly captured.
+     * 
+     * @param dots
+     *            the indexes of the dots that changed
+     */   
+    private void checkGraph(IntStack dots) {
+
+        frontierValid = false;
+
+        if (graph == null) {
+            return;
+        }
+
+        // the dots of a component are logged together, so each component is
+        // usually checked once
+        int previous = -1;
+        for (int n = 0; n < dots.size(); n++) {
+            int k = graph.getComponent(dots.get(n));
+            if (k == previous) {
+                continue;
+            }
+            previous = k;
+            boolean captured = board.isCaptured(dots.get(n));
+            if (!captured && graph.getColor(k) < 0) {
+                graph = null;
+                return;
+            }
+            for (int d = 0; d < graph.getSize(k); d++) {
+                if (board.isCaptured(graph.getDot(k, d)) != captured) {
+                    graph = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Setter method for torusMode. Changing the mode changes the adjacency
+     * of the dots, so the component graph is rebuilt on the next flood.
+     * 
+     * @param torusMode
+     *            true to play on a torus, false to play on a plane
+    */   
+    public void setTorusMode(boolean torusMode) {
+
+        if (this.torusMode != torusMode) {
+            this.torusMode = torusMode;
+            graph = null;
+            frontierValid = false;
+        }
+    }
+
+    /**
+     * Setter method for diagonalMode. Changing the mode changes the adjacency
+     * of the dots, so the component graph is rebuilt on the next flood.
+     * 
+     * @param diagonalMode
+     *            true to allow diagonal moves, false otherwise
+    */   
+    public void setDiagonalMode(boolean diagonalMode) {
+
+        if (this.diagonalMode != diagonalMode) {
+            this.diagonalMode = diagonalMode;
+            graph = null;
+            frontierValid = false;
+        }
+    }
+
+    /**
+     * Getter method for torusMode
+     * 
+     * @return true if the game is played on a torus
+     */   
+    public boolean isTorusMode() {
+
+        return torusMode;
+    }
+
+    /**
+     * Getter method for diagonalMode
+     * 
+     * @return true if diagonal moves are allowed
+     */   
+    public boolean isDiagonalMode() {
+
+        return diagonalMode;
+    }
+
+    /**
+     * Getter method for the graph of the connected components of the board,
+     * computed for the current torus and diagonal modes. The graph is
+     * immutable, and shared between a model and its clones.
+     * 
+     * @return the component graph
+     */   
+    public ComponentGraph getComponentGraph() {
+
+        if (graph == null) {
+            graph = new ComponentGraph(this);
+        }
+        return graph;
+    }
+
+    /**
+     * <b>flood</b> applies the logic of the game for a newly selected color:
+     * every component of that color adjacent to the captured region is merged
+     * into it. Only the frontier bucket of that color and the newly captured
+     * components are visited, never the interior of the region.
+     *
+     * @param color
+     *            the newly selected color
+     * @return the number of newly captured dots
+     */
+    public int flood(int color) {
+
+        prepareFrontier();
+
+        int before = capturedDots;
+        IntStack bucket = frontier[color];
+
+        while (!bucket.isEmpty()) {
+            int k = bucket.popInt();
+            queued[k] = false;
+            if (!board.isCaptured(graph.getDot(k, 0))) {
+                captureComponent(k);
+            }
+        }
+
+        return capturedDots - before;
+    }
+
+    /**
+     * Captures every dot of a component, and adds its free neighbours to the
+     * frontier.
+     *
+     * @param k
+     *            the component
+     */
+    private void captureComponent(int k) {
+
+        int size = graph.getSize(k);
+        for (int n = 0; n < size; n++) {
+            board.capture(graph.getDot(k, n));
+            changed(graph.getDot(k, n));
+        }
+        capturedDots += size;
+        zobristHash ^= graph.getZobristKey(k);
+
+        if (captureLog != null) {
+            for (int n = 0; n < size; n++) {
+                captureLog.pushInt(graph.getDot(k, n));
+            }
+        }
+
+        enqueueNeighbours(k);
+    }
+
+    /**
+     * Makes sure the component graph and the frontier of the captured region
+     * are up to date.
+     */
+    private void prepareFrontier() {
+
+        getComponentGraph();
+
+        if (frontierValid) {
+            return;
+        }
+
+        if (frontier == null) {
+            frontier = new IntStack[numberOfColors];
+            for (int c = 0; c < numberOfColors; c++) {
+                frontier[c] = new IntStack();
+            }
+        } else {
+            for (int c = 0; c < numberOfColors; c++) {
+                frontier[c].clear();
+            }
+        }
+
+        if (queued == null || queued.length != graph.getNumberOfComponents()) {
+            queued = new boolean[graph.getNumberOfComponents()];
+        } else {
+            Arrays.fill(queued, false);
+        }
+        frontierValid = true;
+
+        for (int k = 0; k < graph.getNumberOfComponents(); k++) {
+            if (board.isCaptured(graph.getDot(k, 0))) {
+                enqueueNeighbours(k);
+            }
+        }
+    }
+
+    /**
+     * Puts the free neighbours of a component in the frontier bucket of
+     * their color, unless they are already there.
+     *
+     * @param k
+     *            the component
+     */
+    private void enqueueNeighbours(int k) {
+
+        int count = graph.getNumberOfNeighbours(k);
+        for (int n = 0; n < count; n++) {
+            int m = graph.getNeighbour(k, n);
+            if (!queued[m] && !board.isCaptured(graph.getDot(m, 0))) {
+                queued[m] = true;
+                frontier[board.getColor(graph.getDot(m, 0))].pushInt(m);
+            }
+        }
+    }
+
+    /**
+     * Computes the neighbours of a dot, following the adjacency rules of the
+     * current torus and diagonal modes.
+     *
+     * @param index
+     *            the index of the dot in the board
+     * @param out
+     *            an array of (at least) 8 slots receiving the neighbours' indexes
+     * @return the number of neighbours stored in out
+     */
+    public int neighbours(int index, int[] out) {
+
+        int x = index / width;
+        int y = index % width;
+        int maxX = height - 1;
+        int maxY = width - 1;
+        int count = 0;
+
+        if (x > 0) {
+            out[count++] = board.index(x-1, y);
+        } else if (torusMode) {
+            out[count++] = board.index(maxX, y);
+        }
+
+        if (x < maxX) {
+            out[count++] = board.index(x+1, y);
+        } else if (torusMode) {
+            out[count++] = board.index(0, y);
+        }
+
+        if (y > 0) {
+            out[count++] = board.index(x, y-1);
+        } else if (torusMode) {
+            out[count++] = board.index(x, maxY);
+        }
+
+        if (y < maxY) {
+            out[count++] = board.index(x, y+1);
+        } else if (torusMode) {
+            out[count++] = board.index(x, 0);
+        }
+
+        if (diagonalMode) {
+
+            // Note: Java's modulus operator returns negative numbers on negative input,
+            // hence we must first add the modulus if the input may be negative.
+
+            if (x > 0 && y > 0) {
+                out[count++] = board.index(x-1, y-1);
+            } else if (torusMode) {
+                out[count++] = board.index((x-1+height) % height, (y-1+width) % width);
+            }
+
+            if (x < maxX && y < maxY) {
+                out[count++] = board.index(x+1, y+1);
+            } else if (torusMode) {
+                out[count++] = board.index((x+1) % height, (y+1) % width);
+            }
+
+            if (x > 0 && y < maxY) {
+                out[count++] = board.index(x-1, y+1);
+            } else if (torusMode) {
+                out[count++] = board.index((x-1+height) % height, (y+1) % width);
+            }
+
+            if (x < maxX && y > 0) {
+                out[count++] = board.index(x+1, y-1);
+            } else if (torusMode) {
+                out[count++] = board.index((x+1) % height, (y-1+width) % width);
+            }
+        }
+
+        return count;
+    }
+
+
+    /**
+     * Getter method for the current number of steps
+     * 
+     * @return the current number of steps
+     */   
+    public int getNumberOfSteps(){
+
+        return steps;
+    }
+
+    /**
+     * Records that a dot is drawn with a new color
+     * 
+     * @param index
+     *            the index of the dot
+     */   
+    private void changed(int index) {
+
+        if (boardChanged) {
+            return;
+        }
+        if (changedDots == null) {
+            changedDots = new IntStack();
+        }
+        if (changedDots.size() >= board.length() / 4) {
+            boardChanged = true;
+            changedDots.clear();
+            return;
+        }
+        changedDots.pushInt(index);
+    }
+
+    /**
+     * Returns the dots drawn with a new color since the last call to
+     * clearChanges, by index. The captured region recolored by a change of
+     * the current color is not included, see isCapturedRegionRecolored.
+     * 
+     * @return the indexes of the changed dots, meaningless if isBoardChanged
+     */   
+    public IntStack getChangedDots() {
+
+        if (changedDots == null) {
+            changedDots = new IntStack();
+        }
+        return changedDots;
+    }
+
+    /**
+     * Returns true if the current color changed since the last call to
+     * clearChanges, so that every captured dot is drawn with a new color
+     * 
+     * @return true if the captured region must be redrawn
+     */   
+    public boolean isCapturedRegionRecolored() {
+
+        return regionRecolored;
+    }
+
+    /**
+     * Returns true if the whole board must be redrawn: after a reset, or when
+     * too many dots changed since the last call to clearChanges
+     * 
+     * @return true if every dot must be redrawn
+     */   
+    public boolean isBoardChanged() {
+
+        return boardChanged;
+    }
+
+    /**
+     * Forgets the changes, once the view has drawn them
+     */   
+    public void clearChanges() {
+
+        if (changedDots != null) {
+            changedDots.clear();
+        }
+        regionRecolored = false;
+        boardChanged = false;
+    }
+
+    /**
+     * Setter method for the current number of steps, used to undo and redo moves
+     * 
+     * @param steps
+     *            the new number of steps
+     */   
+    public void setNumberOfSteps(int steps){
+
+        this.steps = steps;
+    }
+
+    /**
+     * Setter method for currentSelectedColor
+     * 
+     * @param val
+     *            the new value for currentSelectedColor
+    */   
+    public void setCurrentSelectedColor(int val) {
+
+        if (val != currentColor) {
+            regionRecolored = true;
+            zobristHash ^= zobristColorKey(currentColor) ^ zobristColorKey(val);
+        }
+        currentColor = val;
+    }
+
+    /**
+     * Getter method for the Zobrist hash of the state: the captured dots and the
+     * current color. Equal states have equal hashes, whatever the moves that led
+     * to them; the modes are not part of the hash.
+     * 
+     * @return the Zobrist hash of the state
+     */
+    public long getZobristHash() {
+
+        return zobristHash;
+    }
+
+    /**
+     * Computes the Zobrist hash of the state from scratch
+     * 
+     * @return the Zobrist hash of the captured dots and the current color
+     */
+    private long computeZobristHash() {
+
+        long hash = zobristColorKey(currentColor);
+        for (int w = 0; w < board.getCapturedWordCount(); w++) {
+            long bits = board.getCapturedWord(w);
+            while (bits != 0) {
+                hash ^= zobristDotKey((w << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the Zobrist key of a captured dot
+     * 
+     * @param index
+     *            the index of the dot
+     * @return 64 random bits, the same for every board
+     */
+    public static long zobristDotKey(int index) {
+
+        return HashedGenerator.hash(ZOBRIST_SEED, index);
+    }
+
+    /**
+     * Returns the Zobrist key of a current color
+     * 
+     * @param color
+     *            the color
+     * @return 64 random bits, different from the keys of the dots
+     */
+    public static long zobristColorKey(int color) {
+
+        return HashedGenerator.hash(ZOBRIST_SEED, -1L - color);
+    }
+
+    /**
+     * Getter method for currentSelectedColor
+     * 
+     * @return currentSelectedColor
+     */   
+    public int getCurrentSelectedColor() {
+
+        return currentColor;
+    }
+
+
+    /**
+     * Getter method for a DotInfo describing the dot
+     * at location (i,j). The board is stored packed, so the
+     * returned DotInfo is a snapshot: changing it does not
+     * change the model.
+     *
+      * @param i
+     *            the x coordinate of the dot
+     * @param j
+     *            the y coordinate of the dot
+     *
+     * @return a DotInfo for the dot at (i,j)
+     */   
+    public DotInfo get(int i, int j) {
+
+        int index = board.index(i, j);
+        DotInfo dot = new DotInfo(i, j, board.getColor(index));
+        dot.setCaptured(board.isCaptured(index));
+        return dot;
+    }
+
+
+   /**
+     * The method <b>step</b> updates the number of steps. It must be called 
+     * once the model has been updated after the player selected a new color.
+     */
+    public void step(){
+
+        steps ++;
+    }
+ 
+   /**
+     * The method <b>isFinished</b> returns true iff the game is finished, that
+     * is, all the dots are captured.
+     *
+     * @return true if the game is finished, false otherwise
+     */
+    public boolean isFinished(){
+
+        return capturedDots == width * height;
+        // for (int x = 0; x < height; x++) {
+        //    for (int y = 0; y < width; y++) {
+        //        if (!model[x][y].isCaptured())
+        //            return false;
+        //    }
+        //}
+        //return true;
+    }
+
+    /**
+     * Clones the game model
+     *
+     * @return modelCopy
+     */
+
+    public GameModel clone() throws CloneNotSupportedException {
+
+        GameModel modelCopy = cloneSharingBoard();
+        modelCopy.board = board.copy();     // constant time on a TiledBoard
+        return modelCopy;
+    }
+
+    /**
+     * Clones the game model in constant time, without copying its board: the
+     * clone reads the board of this model until copyBoard is called, which can
+     * then be done by another thread
+     *
+     * @return modelCopy
+     */
+    GameModel cloneSharingBoard() throws CloneNotSupportedException {
+
+        GameModel modelCopy = (GameModel) super.clone();
+        modelCopy.frontier = null;
+        modelCopy.queued = null;
+        modelCopy.frontierValid = false;
+        modelCopy.captureLog = null;
+        modelCopy.changedDots = null;
+        modelCopy.boardChanged = true;
+
+        return modelCopy;
+    }
+
+    /**
+     * Replaces the board of the model by a copy, after cloneSharingBoard
+     */
+    void copyBoard() {
+
+        board = board.copy();
+    }
+
+   /**
+     * Builds a String representation of the model
+     *
+     * @return String representation of the model
+     */
+    public String toString(){
+
+        StringBuilder output = new StringBuilder(2 * height * (width + 1) + 16);
+
+        for (int x = 0; x < height; x++) {
+            for (int y = 0; y < width; y++) {
+                output.append(getColor(x, y)).append(' ');
+            }
+            output.append('\n');
+        }
+
+        output.append("Steps: ").append(steps);
+
+        return output.toString();
+    }
+}
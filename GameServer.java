@@ -0,0 +1,576 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The class <b>GameServer</b> hosts many independent games in one virtual machine,
+ * for clients connecting to a local socket. Each game is a session, with its own
+ * <b>GameModel</b>, <b>GameEngine</b> and <b>GameHistory</b>, and its own seeded
+ * random generator: sessions share no mutable state.
+ *
+ * Each session has a mailbox. The commands sent to a session are queued in its
+ * mailbox, and a single task at a time runs them in order, so that the game is
+ * never played by two threads at once, even when several clients join the same
+ * session. On a virtual machine with virtual threads (Java 21), every connection
+ * and every run of a mailbox gets its own virtual thread, so thousands of sessions
+ * cost little more than their boards. Otherwise, connections get a thread each from
+ * a cached pool, and mailboxes are run by a <b>ForkJoinPool</b> with a worker per core.
+ *
+ * The protocol has one command per line, and one reply line per command: "ok",
+ * followed by the result, or "error" followed by the reason. The commands are:
+ * - new [SIZE or WIDTHxHEIGHT] [COLORS] [SEED]: starts a session and joins it,
+ *   replies with its id and the seed of its board
+ * - join ID: joins a running session
+ * - close: ends the session joined
+ * - quit: ends the connection, the session keeps running
+ * and, on the session joined, the actions of the <b>GameController</b>:
+ * - dot X Y: clicks the dot (X,Y), the initial dot before the first step, or its color
+ * - select COLOR: selects a color, starting from (0,0) before the first step
+ * - undo, redo, reset
+ * - torus on|off, diagonal on|off
+ * - save: saves the game in the directory of the server, in the format of GameFile
+ * - state: the steps, the current color, whether the game is finished, and the
+ *   depths of undo and redo
+ * - board: the size of the board, then its rows separated by '/', one digit in
+ *   base 32 per dot
+ *
+ * A session no connection has joined for the idle timeout (DEFAULT_IDLE_TIMEOUT,
+ * ten minutes by default) is closed, so that clients going away without closing
+ * their sessions do not fill the server.
+ *
+ * Usage: java FloodIt serve [PORT] [SAVE DIRECTORY]
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class GameServer {
+
+    public static final int DEFAULT_PORT = 4111;
+    public static final int DEFAULT_MAX_SESSIONS = 10000;
+    public static final long DEFAULT_IDLE_TIMEOUT = 10 * 60 * 1000;   // in milliseconds
+
+    // a session cannot create a board larger than this number of dots
+    public static final int MAX_DOTS = 1 << 20;
+
+    private ServerSocket serverSocket;
+    private ExecutorService connections;
+    private ExecutorService mailboxes;
+    private ScheduledExecutorService evictions;
+    private boolean virtual;
+    private File saveDirectory;
+    private int maxSessions;
+    private long idleTimeout;
+    private long serverSeed;
+
+    private ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<Long, Session>();
+    private AtomicLong nextId = new AtomicLong(1);
+    private Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor: the server listens on the loopback address
+     *
+     * @param port
+     *            the port, 0 for any free port
+     * @param saveDirectory
+     *            the directory of the saved games
+     * @param maxSessions
+     *            the maximum number of sessions running at once
+     */
+    public GameServer(int port, File saveDirectory, int maxSessions) throws IOException {
+
+        this(port, saveDirectory, maxSessions, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Constructor: the server listens on the loopback address
+     *
+     * @param port
+     *            the port, 0 for any free port
+     * @param saveDirectory
+     *            the directory of the saved games
+     * @param maxSessions
+     *            the maximum number of sessions running at once
+     * @param idleTimeout
+     *            the time after which a session no connection has joined is
+     *            closed, in milliseconds
+     */
+    public GameServer(int port, File saveDirectory, int maxSessions, long idleTimeout) throws IOException {
+
+        this.saveDirectory = saveDirectory;
+        this.maxSessions = maxSessions;
+        this.idleTimeout = idleTimeout;
+        serverSeed = System.nanoTime();
+
+        ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+        virtual = virtualThreads != null;
+        if (virtual) {
+            connections = virtualThreads;
+            mailboxes = virtualThreads;
+        } else {
+            connections = Executors.newCachedThreadPool();
+            mailboxes = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        }
+
+        evictions = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "GameServer evictions");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = Math.max(idleTimeout / 4, 1);
+        evictions.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                evictIdleSessions();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+
+        serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Starts the server on the given port
+     *
+     * @param args
+     *            the port, then the directory of the saved games
+     */
+    public static void main(String[] args) throws IOException {
+
+        int port = args.length >= 1 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        File saveDirectory = new File(args.length >= 2 ? args[1] : ".");
+
+        GameServer server = new GameServer(port, saveDirectory, DEFAULT_MAX_SESSIONS);
+        System.out.println("Serving games on " + server.getPort()
+            + (server.isVirtual() ? " with virtual threads" : " with platform threads"));
+        server.serve();
+    }
+
+    /**
+     * Returns the executor of the virtual threads, if the virtual machine has them.
+     * It is looked up by name, so that the server also runs before Java 21.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Getter method for the port of the server
+     *
+     * @return the local port
+     */
+    public int getPort() {
+
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns true if the sessions and connections run on virtual threads
+     *
+     * @return false if they run on platform threads
+     */
+    public boolean isVirtual() {
+
+        return virtual;
+    }
+
+    /**
+     * Getter method for the number of sessions running
+     *
+     * @return the number of sessions
+     */
+    public int getSessionCount() {
+
+        return sessions.size();
+    }
+
+    /**
+     * Closes the sessions no connection has joined for the idle timeout
+     *
+     * @return the number of sessions closed
+     */
+    public int evictIdleSessions() {
+
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Session session : sessions.values()) {
+            if (session.attached.get() == 0 && now - session.lastUsed > idleTimeout * 1000000L
+                && sessions.remove(session.id, session)) {
+                session.closed = true;
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Accepts connections until the server is closed
+     */
+    public void serve() {
+
+        while (!serverSocket.isClosed()) {
+            try {
+                connections.execute(new Connection(serverSocket.accept()));
+            } catch (IOException e) {
+                // closed, or a connection that failed before being accepted
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections and stops the threads of the server
+     */
+    public void close() throws IOException {
+
+        serverSocket.close();
+        for (Socket client : clients) {
+            client.close();     // a blocked read only stops when its socket is closed
+        }
+        connections.shutdownNow();
+        mailboxes.shutdownNow();
+        evictions.shutdownNow();
+    }
+
+    /**
+     * A command sent to a session, with the future receiving its reply
+     */
+    private static class Command {
+
+        private String[] words;
+        private CompletableFuture<String> reply = new CompletableFuture<String>();
+
+        Command(String[] words) {
+            this.words = words;
+        }
+    }
+
+    /**
+     * One game, running the commands of its mailbox in order. Only the task
+     * running the mailbox touches the game.
+     */
+    private class Session implements Runnable {
+
+        private long id;
+        private GameModel model;
+        private GameEngine engine;
+        private GameHistory history = new GameHistory();
+
+        private ConcurrentLinkedQueue<Command> mailbox = new ConcurrentLinkedQueue<Command>();
+        private AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        // the connections that joined the session, and the last time one of them
+        // used it or left it, in nanoseconds
+        private AtomicInteger attached = new AtomicInteger();
+        private volatile long lastUsed = System.nanoTime();
+
+        Session(long id, int width, int height, int numberOfColors, long seed) {
+            this.id = id;
+            // the model draws the seeds of the next boards from its own generator
+            model = new GameModel(width, height, numberOfColors, seed, false, false, new UniformGenerator());
+            engine = new GameEngine(model);
+        }
+
+        /**
+         * Queues a command, and schedules the mailbox unless it is already
+         */
+        CompletableFuture<String> post(String[] words) {
+
+            Command command = new Command(words);
+            mailbox.add(command);
+            if (scheduled.compareAndSet(false, true)) {
+                mailboxes.execute(this);
+            }
+            return command.reply;
+        }
+
+        /**
+         * Runs the commands of the mailbox, until it is empty. Every command gets its
+         * reply, and the mailbox is scheduled again, even if a command fails.
+         */
+        public void run() {
+
+            try {
+                Command command;
+                while ((command = mailbox.poll()) != null) {
+                    String reply = "error internal error";
+                    try {
+                        reply = closed ? "error session closed" : handle(command.words);
+                    } catch (RuntimeException e) {
+                        reply = "error " + e.getMessage();
+                    } finally {
+                        command.reply.complete(reply);
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+                    mailboxes.execute(this);
+                }
+            }
+        }
+
+        /**
+         * Plays a command on the game
+         */
+        private String handle(String[] words) {
+
+            String action = words[0];
+            if (action.equals("dot") && words.length == 3) {
+                int x = Integer.parseInt(words[1]);
+                int y = Integer.parseInt(words[2]);
+                if (x < 0 || x >= model.getHeight() || y < 0 || y >= model.getWidth()) {
+                    return "error no such dot";
+                }
+                if (model.getNumberOfSteps() < 0) {
+                    saveState();
+                    engine.selectInitialDot(x, y);
+                } else if (!model.isCaptured(x, y)) {
+                    saveState();
+                    engine.applyMove(model.getDotColor(x, y));
+                }
+                return state();
+            } else if (action.equals("select") && words.length == 2) {
+                int color = Integer.parseInt(words[1]);
+                if (color < 0 || color >= model.getNumberOfColors()) {
+                    return "error no such color";
+                }
+                if (model.getNumberOfSteps() < 0 || model.getCurrentSelectedColor() != color) {
+                    saveState();
+                    engine.applyMove(color);
+                }
+                return state();
+            } else if (action.equals("undo")) {
+                if (!history.canUndo()) {
+                    return "error nothing to undo";
+                }
+                history.undo(model);
+                return state();
+            } else if (action.equals("redo")) {
+                if (!history.canRedo()) {
+                    return "error nothing to redo";
+                }
+                history.redo(model);
+                return state();
+            } else if (action.equals("reset")) {
+                history.clear();
+                model.reset();
+                return state();
+            } else if ((action.equals("torus") || action.equals("diagonal")) && words.length == 2
+                       && (words[1].equals("on") || words[1].equals("off"))) {
+                boolean on = words[1].equals("on");
+                boolean torus = action.equals("torus");
+                if ((torus ? model.isTorusMode() : model.isDiagonalMode()) != on) {
+                    saveState();
+                    if (torus) {
+                        model.setTorusMode(on);
+                    } else {
+                        model.setDiagonalMode(on);
+                    }
+                }
+                return state();
+            } else if (action.equals("save")) {
+                File file = new File(saveDirectory, "session-" + id + ".dat");
+                try {
+                    GameFile.save(model, file);
+                } catch (IOException e) {
+                    return "error saving the game";
+                }
+                return "ok " + file.getName();
+            } else if (action.equals("state")) {
+                return state();
+            } else if (action.equals("board")) {
+                return board();
+            }
+            return "error unknown command " + action;
+        }
+
+        /**
+         * Records the state before an action, so that it can be undone
+         */
+        private void saveState() {
+
+            history.save(model);
+            history.clearRedo();
+        }
+
+        /**
+         * The state of the game, as a reply
+         */
+        private String state() {
+
+            return "ok steps " + model.getNumberOfSteps() + " color " + model.getCurrentSelectedColor()
+                + " finished " + model.isFinished() + " undo " + history.getUndoDepth()
+                + " redo " + history.getRedoDepth();
+        }
+
+        /**
+         * The colors of the board, as a reply
+         */
+        private String board() {
+
+            StringBuilder reply = new StringBuilder(16 + model.getHeight() * (model.getWidth() + 1));
+            reply.append("ok ").append(model.getWidth()).append('x').append(model.getHeight()).append(' ');
+            for (int x = 0; x < model.getHeight(); x++) {
+                if (x > 0) {
+                    reply.append('/');
+                }
+                for (int y = 0; y < model.getWidth(); y++) {
+                    reply.append(Character.forDigit(model.getColor(x, y), 32));
+                }
+            }
+            return reply.toString();
+        }
+    }
+
+    /**
+     * One client: reads its commands, and writes their replies. The commands of
+     * the games are sent to the mailbox of the session joined.
+     */
+    private class Connection implements Runnable {
+
+        private Socket socket;
+        private Session session;
+
+        Connection(Socket socket) {
+            this.socket = socket;
+        }
+
+        public void run() {
+
+            clients.add(socket);
+            try (Socket client = socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(),
+                                                                              StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(new OutputStreamWriter(client.getOutputStream(),
+                                                                          StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] words = line.trim().split("\\s+");
+                    if (words[0].equals("quit")) {
+                        out.println("ok bye");
+                        break;
+                    }
+                    out.println(handle(words));
+                    out.flush();
+                }
+                out.flush();
+            } catch (IOException e) {
+                // the client went away: its session keeps running until it is idle
+            } finally {
+                clients.remove(socket);
+                attach(null);
+            }
+        }
+
+        /**
+         * Leaves the session joined, if any, and joins another one
+         */
+        private void attach(Session joined) {
+
+            if (session != null) {
+                session.lastUsed = System.nanoTime();
+                session.attached.decrementAndGet();
+            }
+            session = joined;
+            if (session != null) {
+                session.attached.incrementAndGet();
+                session.lastUsed = System.nanoTime();
+            }
+        }
+
+        /**
+         * Handles the commands of the connection, and sends the others to the session
+         */
+        private String handle(String[] words) {
+
+            try {
+                if (words[0].equals("new")) {
+                    return newSession(words);
+                } else if (words[0].equals("join") && words.length == 2) {
+                    Session joined = sessions.get(Long.parseLong(words[1]));
+                    if (joined == null) {
+                        return "error no such session";
+                    }
+                    attach(joined);
+                    return "ok " + session.id;
+                } else if (words[0].equals("close")) {
+                    if (session == null) {
+                        return "error no session";
+                    }
+                    session.closed = true;
+                    sessions.remove(session.id);
+                    attach(null);
+                    return "ok closed";
+                } else if (words[0].isEmpty()) {
+                    return "error empty command";
+                } else if (session == null) {
+                    return "error no session";
+                }
+                session.lastUsed = System.nanoTime();
+                return session.post(words).join();
+            } catch (NumberFormatException e) {
+                return "error not a number";
+            }
+        }
+
+        /**
+         * Starts a session: new [SIZE or WIDTHxHEIGHT] [COLORS] [SEED]
+         */
+        private String newSession(String[] words) {
+
+            int width = 12, height = 12;
+            if (words.length >= 2) {
+                String[] dimensions = words[1].split("x", -1);
+                if (dimensions.length > 2) {
+                    return "error unsupported size";
+                }
+                width = Integer.parseInt(dimensions[0]);
+                height = dimensions.length == 2 ? Integer.parseInt(dimensions[1]) : width;
+            }
+            int numberOfColors = words.length >= 3 ? Integer.parseInt(words[2]) : GameModel.NUMBER_OF_COLORS;
+            if (width < 1 || height < 1 || (long) width * height > MAX_DOTS) {
+                return "error unsupported size";
+            }
+            if (numberOfColors < GameModel.MIN_NUMBER_OF_COLORS || numberOfColors > GameModel.MAX_NUMBER_OF_COLORS) {
+                return "error unsupported number of colors";
+            }
+            if (sessions.size() >= maxSessions && evictIdleSessions() == 0) {
+                return "error too many sessions";
+            }
+
+            long id = nextId.getAndIncrement();
+            long seed = words.length >= 4 ? Long.parseLong(words[3]) : HashedGenerator.hash(serverSeed, id);
+            Session created = new Session(id, width, height, numberOfColors, seed);
+            sessions.put(id, created);
+            attach(created);
+            return "ok " + id + " " + seed;
+        }
+    }
+
+}
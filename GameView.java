@@ -1,197 +1,316 @@
-import java.awt.*;
-import java.awt.event.*;
-import javax.swing.*;
-
-/**
- * The class <b>GameView</b> provides the current view of the entire Game. It extends
- * <b>JFrame</b> and lays out the actual game and 
- * two instances of JButton. The action listener for the buttons is the controller.
- *
- * @author Weiyun, University of Ottawa
- */
-
-public class GameView extends JFrame {
-
-    int gameSize;
-    int iconSize;
-
-    protected GameModel theModel;
-    protected DotButton[][] board;
-    protected DotButton[] buttonSelector;
-
-    protected JButton quitButton, resetButton;
-    protected JLabel stepCount;
-
-    protected JButton undoButton, redoButton, settingsButton;
-
-    protected JRadioButton torusButton, planeButton;
-    protected JRadioButton orthogonalButton, diagonalButton;
-
-    protected Object[] settingsBox;
-
-    /**
-     * Constructor used for initializing the Frame
-     * 
-     * @param model
-     *            the model of the game (already initialized)
-     * @param gameController
-     *            the controller
-     */
-
-    public GameView(GameModel model, GameController gameController) {
-
-        super("FloodIt - ITI1121 Edition");
-
-        theModel = model;
-        gameSize = theModel.getSize();
-
-        if (gameSize <= 25) {
-            iconSize = 1;
-        } else {
-            iconSize = 0;
-        }
-
-        setSize(500, 500);
-
-        JPanel boardPanel = new JPanel();
-
-        boardPanel.setBackground(Color.WHITE);
-        boardPanel.setLayout(new GridLayout(gameSize, gameSize));
-        boardPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-
-        board = new DotButton[gameSize][gameSize];
-
-        for (int x = 0; x < gameSize; x++) {
-            for (int y = 0; y < gameSize; y++) {
-                int xPos = theModel.model[x][y].getX();
-                int yPos = theModel.model[x][y].getY();
-                int dotColor = theModel.model[x][y].getColor();
-                DotButton dot = new DotButton(xPos, yPos, dotColor, iconSize);
-                board[x][y] = dot;
-                boardPanel.add(dot);
-            }
-        }
-
-        add(boardPanel, BorderLayout.CENTER);
-
-        stepCount = new JLabel("Select initial dot.");
-        resetButton = new JButton("Reset");
-        quitButton = new JButton("Quit");
-
-        JPanel controlPanel = new JPanel();
-        controlPanel.setBackground(Color.WHITE);
-        controlPanel.setBorder(BorderFactory.createEmptyBorder(20, 10, 0, 10));
-        controlPanel.add(stepCount);
-        controlPanel.add(resetButton);
-        controlPanel.add(quitButton);
-
-        add(controlPanel, BorderLayout.SOUTH);
-
-        undoButton = new JButton("Undo");
-        redoButton = new JButton("Redo");
-        settingsButton = new JButton("Settings");
-
-        undoButton.setEnabled(false);
-        redoButton.setEnabled(false);
-
-        JPanel topPanel = new JPanel();
-        topPanel.setBackground(Color.WHITE);
-        topPanel.setBorder(BorderFactory.createEmptyBorder(20, 10, 0, 10));
-        topPanel.add(undoButton);
-        topPanel.add(redoButton);
-        topPanel.add(settingsButton);
-
-        add(topPanel, BorderLayout.NORTH);
-
-        torusButton = new JRadioButton("Torus");
-        planeButton = new JRadioButton("Plane");
-        orthogonalButton = new JRadioButton("Orthogonal");
-        diagonalButton = new JRadioButton("Diagonal");
-
-        ButtonGroup group1 = new ButtonGroup();
-        ButtonGroup group2 = new ButtonGroup();
-
-        group1.add(torusButton);
-        group1.add(planeButton);
-
-        group2.add(orthogonalButton);
-        group2.add(diagonalButton);
-
-        JLabel planeQuest = new JLabel("Play on plane or torus?");
-        JLabel moveQuest = new JLabel("Diagonal moves?");
-
-        settingsBox = new Object[6];
-        settingsBox[0] = planeQuest;
-        settingsBox[1] = planeButton;
-        settingsBox[2] = torusButton;
-        settingsBox[3] = moveQuest;
-        settingsBox[4] = orthogonalButton;
-        settingsBox[5] = diagonalButton;
-
-        planeButton.setSelected(true);
-        orthogonalButton.setSelected(true);
-
-        for (int x = 0; x < gameSize; x++) {
-            for (int y = 0; y < gameSize; y++) {
-                board[x][y].addActionListener(gameController);
-            }
-        }
-
-        resetButton.addActionListener(gameController);
-        quitButton.addActionListener(gameController);
-        undoButton.addActionListener(gameController);
-        redoButton.addActionListener(gameController);
-        settingsButton.addActionListener(gameController);
-
-        planeButton.addActionListener(gameController);
-        torusButton.addActionListener(gameController);
-        orthogonalButton.addActionListener(gameController);
-        diagonalButton.addActionListener(gameController);
-
-        pack();
-
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setVisible(true);
-    }
-
-    /**
-     * update the status of the board's DotButton instances based on the current game model
-     */
-
-    public void update(){
-
-        for (int x = 0; x < gameSize; x++) {
-            for (int y = 0; y < gameSize; y++) {
-                if (theModel.model[x][y].isCaptured()) {
-                    board[x][y].setColor(theModel.getCurrentSelectedColor());
-                } else {
-                    board[x][y].setColor(theModel.model[x][y].getColor());
-                }
-            }
-        }
-
-        if (theModel.diagonalMode) {
-            diagonalButton.setSelected(true);
-        } else {
-            orthogonalButton.setSelected(true);
-        }
-
-        if (theModel.torusMode) {
-            torusButton.setSelected(true);
-        } else {
-            planeButton.setSelected(true);
-        }
-
-        int numSteps = theModel.getNumberOfSteps();
-        String stepsCurrent = new String();
-
-        if (numSteps >= 0) {
-            stepsCurrent = "Number of steps: " + Integer.toString(numSteps);
-        } else {
-            stepsCurrent = "Select initial dot.";
-        }
-    
-        stepCount.setText(stepsCurrent);
-    }
-
+import java.awt.*;
+import java.awt.event.*;
+import javax.swing.*;
+
+/**
+ * The class <b>GameView</b> provides the current view of the entire Game. It extends
+ * <b>JFrame</b> and lays out the actual game and 
+ * two instances of JButton. The action listener for the buttons is the controller.
+ *
+ * @author Weiyun, University of Ottawa
+ */
+
+public class GameView extends JFrame {
+
+    int width, height;
+    int iconSize;
+
+    protected GameModel theModel;
+    protected DotButton[][] board;
+    protected BoardCanvas canvas;
+    protected DotButton[] buttonSelector;
+
+    protected JButton quitButton, resetButton;
+    protected JLabel stepCount;
+
+    protected JButton undoButton, redoButton, settingsButton;
+    protected JButton hintButton;
+    protected JLabel hintLabel;
+
+    // number of calls to update, so that a hint computed for an older state is ignored
+    protected int updates;
+
+    protected JRadioButton torusButton, planeButton;
+    protected JRadioButton orthogonalButton, diagonalButton;
+
+    protected Object[] settingsBox;
+
+    // boards larger than this are drawn on a BoardCanvas by default
+    public static final int CANVAS_SIZE = 60;
+
+    /**
+     * Constructor used for initializing the Frame. Boards larger than CANVAS_SIZE
+     * are drawn on a single BoardCanvas, smaller ones with a DotButton per dot.
+     * 
+     * @param model
+     *            the model of the game (already initialized)
+     * @param gameController
+     *            the controller
+     */
+
+    public GameView(GameModel model, GameController gameController) {
+
+        this(model, gameController, Math.max(model.getWidth(), model.getHeight()) > CANVAS_SIZE);
+    }
+
+    /**
+     * Constructor used for initializing the Frame
+     * 
+     * @param model
+     *            the model of the game (already initialized)
+     * @param gameController
+     *            the controller
+     * @param useCanvas
+     *            true to draw the board on a single BoardCanvas, false to use
+     *            a DotButton per dot
+     */
+
+    public GameView(GameModel model, GameController gameController, boolean useCanvas) {
+
+        super("FloodIt - ITI1121 Edition");
+
+        theModel = model;
+        width = theModel.getWidth();
+        height = theModel.getHeight();
+
+        if (Math.max(width, height) <= 25) {
+            iconSize = 1;
+        } else {
+            iconSize = 0;
+        }
+
+        setSize(500, 500);
+
+        JPanel boardPanel = new JPanel();
+
+        boardPanel.setBackground(Color.WHITE);
+        boardPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        if (useCanvas) {
+            boardPanel.setLayout(new GridBagLayout());
+            canvas = new BoardCanvas(width, height, iconSize, theModel.getNumberOfColors());
+            for (int x = 0; x < height; x++) {
+                for (int y = 0; y < width; y++) {
+                    canvas.drawColor(x, y, theModel.getColor(x, y));
+                }
+            }
+            boardPanel.add(canvas);
+        } else {
+            boardPanel.setLayout(new GridLayout(height, width));
+            board = new DotButton[height][width];
+
+            for (int x = 0; x < height; x++) {
+                for (int y = 0; y < width; y++) {
+                    DotButton dot = new DotButton(x, y, theModel.getColor(x, y), iconSize);
+                    board[x][y] = dot;
+                    boardPanel.add(dot);
+                }
+            }
+        }
+
+        if (canvas != null && (canvas.getPreferredSize().width > BoardCanvas.MAX_PIXELS
+                               || canvas.getPreferredSize().height > BoardCanvas.MAX_PIXELS)) {
+            // large boards and long strips do not fit on the screen
+            JScrollPane scrollPane = new JScrollPane(boardPanel);
+            scrollPane.setPreferredSize(new Dimension(
+                Math.min(canvas.getPreferredSize().width, BoardCanvas.MAX_PIXELS) + 60,
+                Math.min(canvas.getPreferredSize().height, BoardCanvas.MAX_PIXELS) + 60));
+            add(scrollPane, BorderLayout.CENTER);
+        } else {
+            add(boardPanel, BorderLayout.CENTER);
+        }
+
+        stepCount = new JLabel("Select initial dot.");
+        resetButton = new JButton("Reset");
+        quitButton = new JButton("Quit");
+
+        JPanel controlPanel = new JPanel();
+        controlPanel.setBackground(Color.WHITE);
+        controlPanel.setBorder(BorderFactory.createEmptyBorder(20, 10, 0, 10));
+        controlPanel.add(stepCount);
+        controlPanel.add(resetButton);
+        controlPanel.add(quitButton);
+
+        add(controlPanel, BorderLayout.SOUTH);
+
+        undoButton = new JButton("Undo");
+        redoButton = new JButton("Redo");
+        settingsButton = new JButton("Settings");
+        hintButton = new JButton("Hint");
+        hintLabel = new JLabel();
+
+        undoButton.setEnabled(false);
+        redoButton.setEnabled(false);
+
+        JPanel topPanel = new JPanel();
+        topPanel.setBackground(Color.WHITE);
+        topPanel.setBorder(BorderFactory.createEmptyBorder(20, 10, 0, 10));
+        topPanel.add(undoButton);
+        topPanel.add(redoButton);
+        topPanel.add(settingsButton);
+        topPanel.add(hintButton);
+        topPanel.add(hintLabel);
+
+        add(topPanel, BorderLayout.NORTH);
+
+        torusButton = new JRadioButton("Torus");
+        planeButton = new JRadioButton("Plane");
+        orthogonalButton = new JRadioButton("Orthogonal");
+        diagonalButton = new JRadioButton("Diagonal");
+
+        ButtonGroup group1 = new ButtonGroup();
+        ButtonGroup group2 = new ButtonGroup();
+
+        group1.add(torusButton);
+        group1.add(planeButton);
+
+        group2.add(orthogonalButton);
+        group2.add(diagonalButton);
+
+        JLabel planeQuest = new JLabel("Play on plane or torus?");
+        JLabel moveQuest = new JLabel("Diagonal moves?");
+
+        settingsBox = new Object[6];
+        settingsBox[0] = planeQuest;
+        settingsBox[1] = planeButton;
+        settingsBox[2] = torusButton;
+        settingsBox[3] = moveQuest;
+        settingsBox[4] = orthogonalButton;
+        settingsBox[5] = diagonalButton;
+
+        planeButton.setSelected(true);
+        orthogonalButton.setSelected(true);
+
+        if (canvas != null) {
+            canvas.addActionListener(gameController);
+        } else {
+            for (int x = 0; x < height; x++) {
+                for (int y = 0; y < width; y++) {
+                    board[x][y].addActionListener(gameController);
+                }
+            }
+        }
+
+        resetButton.addActionListener(gameController);
+        quitButton.addActionListener(gameController);
+        undoButton.addActionListener(gameController);
+        redoButton.addActionListener(gameController);
+        settingsButton.addActionListener(gameController);
+        hintButton.addActionListener(gameController);
+
+        planeButton.addActionListener(gameController);
+        torusButton.addActionListener(gameController);
+        orthogonalButton.addActionListener(gameController);
+        diagonalButton.addActionListener(gameController);
+
+        pack();
+
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setVisible(true);
+    }
+
+    /**
+     * update the status of the board's DotButton instances based on the current game model.
+     * Only the dots that changed since the last update are redrawn: the ones captured or
+     * released, and the captured region if the current color changed.
+     */
+
+    public void update(){
+
+        if (theModel.isBoardChanged() && canvas != null) {
+            for (int x = 0; x < height; x++) {
+                for (int y = 0; y < width; y++) {
+                    canvas.drawColor(x, y, theModel.getColor(x, y));
+                }
+            }
+            canvas.repaint();
+        } else if (theModel.isBoardChanged()) {
+            for (int x = 0; x < height; x++) {
+                for (int y = 0; y < width; y++) {
+                    board[x][y].setColor(theModel.getColor(x, y));
+                }
+            }
+        } else {
+            if (theModel.isCapturedRegionRecolored()) {
+                Board dots = theModel.getBoard();
+                for (int w = 0; w < dots.getCapturedWordCount(); w++) {
+                    long bits = dots.getCapturedWord(w);
+                    while (bits != 0) {
+                        updateDot((w << 6) + Long.numberOfTrailingZeros(bits));
+                        bits &= bits - 1;
+                    }
+                }
+            }
+            IntStack changed = theModel.getChangedDots();
+            for (int n = 0; n < changed.size(); n++) {
+                updateDot(changed.get(n));
+            }
+        }
+        theModel.clearChanges();
+
+        updates++;
+        hintLabel.setIcon(null);
+        hintLabel.setText("");
+
+        if (theModel.isDiagonalMode()) {
+            diagonalButton.setSelected(true);
+        } else {
+            orthogonalButton.setSelected(true);
+        }
+
+        if (theModel.isTorusMode()) {
+            torusButton.setSelected(true);
+        } else {
+            planeButton.setSelected(true);
+        }
+
+        int numSteps = theModel.getNumberOfSteps();
+        String stepsCurrent = new String();
+
+        if (numSteps >= 0) {
+            stepsCurrent = "Number of steps: " + Integer.toString(numSteps);
+        } else {
+            stepsCurrent = "Select initial dot.";
+        }
+    
+        stepCount.setText(stepsCurrent);
+    }
+
+    /**
+     * shows the color advised by a hint, until the next update
+     *
+     * @param color
+     *            the color to select next, -1 if there is none
+     */
+
+    public void showHint(int color){
+
+        if (color < 0) {
+            hintLabel.setIcon(null);
+            hintLabel.setText("No hint.");
+        } else {
+            hintLabel.setIcon(DotButton.getImageIcon(color, iconSize));
+            hintLabel.setText("Try");
+            hintLabel.setHorizontalTextPosition(SwingConstants.LEFT);
+        }
+    }
+
+    /**
+     * update the DotButton, or the cell of the canvas, of a single dot
+     *
+     * @param index
+     *            the index of the dot in the board
+     */
+
+    private void updateDot(int index){
+
+        int x = index / width;
+        int y = index % width;
+        if (canvas != null) {
+            canvas.setColor(x, y, theModel.getColor(x, y));
+        } else {
+            board[x][y].setColor(theModel.getColor(x, y));
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+/**
+ * The class <b>GreedySolver</b> is a fast heuristic <b>Solver</b>: at each step it
+ * selects the color that captures the most dots, or the color that leaves the
+ * largest frontier. It is not optimal, but it is linear in the number of moves
+ * and is used as a first upper bound by the other solvers.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class GreedySolver implements Solver {
+
+    /**
+     * predefined values for the criterion of the solver
+     */
+
+    public static final int MAXIMIZE_AREA     = 0;
+    public static final int MAXIMIZE_FRONTIER = 1;
+
+    private int criterion;
+
+    /**
+     * Constructor for a solver maximizing the captured area
+     */
+    public GreedySolver() {
+
+        this(MAXIMIZE_AREA);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param criterion
+     *            one of MAXIMIZE_AREA or MAXIMIZE_FRONTIER
+     */
+    public GreedySolver(int criterion) {
+
+        this.criterion = criterion;
+    }
+
+    /**
+     * Computes a sequence of moves finishing the game
+     *
+     * @param model
+     *            the model of the game, which is not modified
+     * @return the colors to select, in order
+     */
+    public int[] solve(GameModel model) {
+
+        return solve(new FloodState(model));
+    }
+
+    /**
+     * Computes a sequence of moves finishing the game from a given state
+     *
+     * @param start
+     *            the state to start from, which is not modified
+     * @return the colors to select, in order
+     */
+    public int[] solve(FloodState start) {
+
+        FloodState state = start.copy();
+        IntStack moves = new IntStack();
+
+        while (!state.isFinished()) {
+            int color = bestMove(state);
+            state.apply(color);
+            moves.pushInt(color);
+        }
+
+        int[] solution = new int[moves.size()];
+        for (int i = 0; i < solution.length; i++) {
+            solution[i] = moves.get(i);
+        }
+        return solution;
+    }
+
+    /**
+     * Selects the best color for the next step, following the criterion. Ties are
+     * broken by captured area, then by the smallest color.
+     *
+     * @param state
+     *            the current state, which is not modified
+     * @return the color to select
+     */
+    public int bestMove(FloodState state) {
+
+        int mask = state.moves();
+        int best = -1;
+        long bestScore = Long.MIN_VALUE;
+
+        for (int c = 0; mask != 0; c++, mask >>>= 1) {
+            if ((mask & 1) == 0) {
+                continue;
+            }
+            long score;
+            if (criterion == MAXIMIZE_FRONTIER) {
+                FloodState next = state.copy();
+                int gain = next.apply(c);
+                if (next.isFinished()) {
+                    score = Long.MAX_VALUE;
+                } else {
+                    score = ((long) next.getFrontierSize() << 32) + gain;
+                }
+            } else {
+                score = state.gain(c);
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+
+        return best;
+    }
+
+}
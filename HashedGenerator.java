@@ -0,0 +1,132 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The class <b>HashedGenerator</b> is the base of the generators that compute the
+ * color of each dot independently, from a hash of the seed and of the position of
+ * the dot (counter-based random numbers). Since no random state is shared from one
+ * dot to the next, large boards are filled in parallel by blocks of rows, and the
+ * board does not depend on how the rows were split between the threads.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public abstract class HashedGenerator implements BoardGenerator {
+
+    private static final long serialVersionUID = 1L;
+
+    // boards with fewer dots are filled by the calling thread
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Computes the color of a dot
+     *
+     * @param x
+     *            the x coordinate of the dot
+     * @param y
+     *            the y coordinate of the dot
+     * @param numberOfColors
+     *            the number of colors
+     * @param seed
+     *            the seed of the board
+     * @return the color of the dot, between 0 and numberOfColors - 1
+     */
+    protected abstract int color(int x, int y, int numberOfColors, long seed);
+
+    /**
+     * Sets the color of every dot of a board, in parallel for large boards
+     *
+     * @param board
+     *            the board to fill
+     * @param numberOfColors
+     *            the number of colors
+     * @param seed
+     *            the seed of the board
+     */
+    public void generate(Board board, int numberOfColors, long seed) {
+
+        RowsTask task = new RowsTask(board, numberOfColors, seed, 0, board.getHeight());
+        if (board.length() < PARALLEL_THRESHOLD) {
+            task.compute();
+        } else {
+            if (board instanceof TiledBoard) {
+                // two threads must not copy the same shared tile
+                ((TiledBoard) board).clearColors();
+            }
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+
+    /**
+     * Hashes a counter with a seed (the mixing function of SplitMix64): the results
+     * of consecutive counters are independent
+     *
+     * @param seed
+     *            the seed
+     * @param counter
+     *            the counter
+     * @return 64 random bits
+     */
+    public static long hash(long seed, long counter) {
+
+        long z = seed + (counter + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Maps 64 random bits to an integer between 0 and bound - 1, uniformly
+     *
+     * @param bits
+     *            random bits, from hash
+     * @param bound
+     *            the number of values
+     * @return a value between 0 and bound - 1
+     */
+    public static int uniform(long bits, int bound) {
+
+        return (int) (((bits >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Task filling the rows in [from, to), split in halves
+     */
+    private class RowsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int ROWS_PER_TASK = 64;
+
+        private Board board;
+        private int numberOfColors;
+        private long seed;
+        private int from, to;
+
+        RowsTask(Board board, int numberOfColors, long seed, int from, int to) {
+            this.board = board;
+            this.numberOfColors = numberOfColors;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            int width = board.getWidth();
+            if (to - from > ROWS_PER_TASK && (long) (to - from) * width >= PARALLEL_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowsTask(board, numberOfColors, seed, from, middle),
+                          new RowsTask(board, numberOfColors, seed, middle, to));
+                return;
+            }
+            for (int x = from; x < to; x++) {
+                for (int y = 0; y < width; y++) {
+                    board.setColor(board.index(x, y), color(x, y, numberOfColors, seed));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,451 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The class <b>HintEngine</b> advises the best next color with a Monte Carlo tree
+ * search, within a time budget. It works on a <b>FloodState</b> taken from a copy
+ * of the model, so it follows the rules of the <b>GameEngine</b>, and the model
+ * itself is never read by the search.
+ *
+ * Each iteration of the search walks down the tree with UCT, adds one child to the
+ * tree, then plays the game to its end from there with a rollout: random colors,
+ * or greedy colors (the color capturing the most dots, with a random color from
+ * time to time). The number of moves of the whole game is then backed up the tree.
+ * The mean numbers of moves are scaled between the best and the worst games seen,
+ * so that the exploration constant does not depend on the size of the board.
+ *
+ * The search is tree-parallel: the workers of a <b>ForkJoinPool</b> share the same
+ * tree, each node being locked while a worker picks its child. A worker going down
+ * a node counts a virtual loss, a game as bad as the worst seen, until its rollout
+ * is backed up, which spreads the workers on different branches.
+ *
+ * The hint is the color of the most visited child of the root. hintAsync returns at
+ * once, and completes its future on a worker when the budget is spent, so that the
+ * event dispatch thread never waits for it. The calling thread only clones the
+ * model when its board is copied in constant time (a <b>TiledBoard</b>). A board
+ * mapped from a file is copied dot by dot, on a worker: if the game is played
+ * meanwhile, the copy may mix two states, and the caller must drop that hint, as
+ * any hint for a state that is no longer the current one.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class HintEngine {
+
+    /**
+     * predefined values for the rollouts
+     */
+
+    public static final int RANDOM_ROLLOUT = 0;
+    public static final int GREEDY_ROLLOUT = 1;
+
+    private static final double EXPLORATION = 0.7;
+    private static final int RANDOM_MOVE_PERIOD = 4;   // one greedy rollout move out of 4 is random
+
+    private ForkJoinPool pool;
+    private int parallelism;
+    private long timeBudget;
+    private int rollout;
+
+    /**
+     * The hint given for a state of the game
+     */
+    public static class Hint {
+
+        private int color;
+        private int[] bestGame;
+        private long rollouts;
+
+        private Hint(int color, int[] bestGame, long rollouts) {
+            this.color = color;
+            this.bestGame = bestGame;
+            this.rollouts = rollouts;
+        }
+
+        /**
+         * @return the color to select next, -1 if the game is finished
+         */
+        public int getColor() {
+            return color;
+        }
+
+        /**
+         * @return the colors of the shortest game found by the search, which may
+         *         not start with the hint
+         */
+        public int[] getBestGame() {
+            return bestGame;
+        }
+
+        /**
+         * @return the number of moves left in the shortest game found
+         */
+        public int getBestNumberOfMoves() {
+            return bestGame.length;
+        }
+
+        /**
+         * @return the number of rollouts played
+         */
+        public long getRollouts() {
+            return rollouts;
+        }
+    }
+
+    /**
+     * Constructor for an engine using every core and greedy rollouts
+     *
+     * @param timeBudget
+     *            the time budget of a hint, in milliseconds
+     */
+    public HintEngine(long timeBudget) {
+
+        this(Runtime.getRuntime().availableProcessors(), timeBudget, GREEDY_ROLLOUT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param parallelism
+     *            the number of worker threads sharing the tree
+     * @param timeBudget
+     *            the time budget of a hint, in milliseconds
+     * @param rollout
+     *            one of RANDOM_ROLLOUT or GREEDY_ROLLOUT
+     */
+    public HintEngine(int parallelism, long timeBudget, int rollout) {
+
+        this.parallelism = Math.max(parallelism, 1);
+        pool = new ForkJoinPool(this.parallelism);
+        this.timeBudget = timeBudget;
+        this.rollout = rollout;
+    }
+
+    /**
+     * Getter method for the time budget
+     *
+     * @return timeBudget, in milliseconds
+     */
+    public long getTimeBudget() {
+
+        return timeBudget;
+    }
+
+    /**
+     * Setter method for the time budget
+     *
+     * @param timeBudget
+     *            the time budget of a hint, in milliseconds
+     */
+    public void setTimeBudget(long timeBudget) {
+
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Computes a hint, waiting for the end of the search
+     *
+     * @param model
+     *            the model of the game, which is not modified
+     * @return the hint
+     */
+    public Hint hint(GameModel model) {
+
+        return hintAsync(model).join();
+    }
+
+    /**
+     * Starts the search of a hint, and returns at once. The model is cloned by the
+     * calling thread, which must be the one playing on it; the search then only
+     * uses the clone. A mapped board is copied by a worker.
+     *
+     * @param model
+     *            the model of the game, which is not modified
+     * @return the future hint, completed when the time budget is spent
+     */
+    public CompletableFuture<Hint> hintAsync(GameModel model) {
+
+        final long deadline = System.nanoTime() + timeBudget * 1000000L;
+        final boolean mapped = model.getBoard() instanceof MappedBoard;
+        final GameModel copy;
+        try {
+            copy = mapped ? model.cloneSharingBoard() : model.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+
+        final CompletableFuture<Search> started = CompletableFuture.supplyAsync(
+            new Supplier<Search>() {
+                public Search get() {
+                    if (mapped) {
+                        copy.copyBoard();
+                    }
+                    return new Search(new FloodState(copy));
+                }
+            }, pool);
+
+        return started.thenCompose(new Function<Search, CompletableFuture<Hint>>() {
+            public CompletableFuture<Hint> apply(final Search search) {
+                CompletableFuture<?>[] workers = new CompletableFuture<?>[parallelism];
+                for (int i = 0; i < parallelism; i++) {
+                    final long seed = deadline + i;
+                    workers[i] = CompletableFuture.runAsync(new Runnable() {
+                        public void run() {
+                            search.run(deadline, new SplittableRandom(seed));
+                        }
+                    }, pool);
+                }
+                return CompletableFuture.allOf(workers).thenApply(new Function<Void, Hint>() {
+                    public Hint apply(Void done) {
+                        return search.getHint();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stops the workers of the engine
+     */
+    public void shutdown() {
+
+        pool.shutdown();
+    }
+
+    /**
+     * A node of the search tree: a state, and the statistics of the games played
+     * through it. The fields are guarded by the lock of the node.
+     */
+    private static class Node {
+
+        private FloodState state;
+        private Node[] children;
+        private int untried;       // the moves without a child yet, as a bitmask
+        private int visits;        // games played through the node, virtual ones included
+        private int virtualLosses; // games still being played through the node
+        private long totalMoves;   // moves of the games backed up through the node
+
+        Node(FloodState state, int numberOfColors) {
+            this.state = state;
+            children = new Node[numberOfColors];
+            untried = state.moves();
+        }
+    }
+
+    /**
+     * One search, shared by the workers
+     */
+    private class Search {
+
+        private Node root;
+        private boolean forced;    // no choice at the root: one iteration is enough
+        private AtomicInteger bestMoves = new AtomicInteger(Integer.MAX_VALUE);
+        private AtomicInteger worstMoves = new AtomicInteger(0);
+        private AtomicLong rollouts = new AtomicLong();
+        private int[] bestGame = new int[0];
+
+        Search(FloodState start) {
+            root = new Node(start, start.getNumberOfColors());
+            forced = start.isFinished() || Integer.bitCount(root.untried) <= 1;
+        }
+
+        /**
+         * Plays iterations until the deadline, at least one
+         */
+        void run(long deadline, SplittableRandom random) {
+
+            IntStack path = new IntStack();
+            do {
+                iterate(random, path);
+            } while (System.nanoTime() < deadline && !forced);
+        }
+
+        /**
+         * Walks down the tree, expands a node, plays a rollout and backs it up
+         */
+        private void iterate(SplittableRandom random, IntStack path) {
+
+            Node[] nodes = new Node[64];
+            int depth = 0;
+            Node node = root;
+            path.clear();
+
+            while (true) {
+                if (depth == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, 2 * depth);
+                }
+                nodes[depth++] = node;
+
+                Node next;
+                synchronized (node) {
+                    node.visits++;
+                    node.virtualLosses++;
+                    if (node.state.isFinished()) {
+                        break;
+                    }
+                    if (node.untried != 0) {
+                        int c = pickBit(node.untried, random);
+                        node.untried &= ~(1 << c);
+                        FloodState state = node.state.copy();
+                        state.apply(c);
+                        next = new Node(state, node.children.length);
+                        node.children[c] = next;
+                        path.pushInt(c);
+                        if (depth == nodes.length) {
+                            nodes = Arrays.copyOf(nodes, 2 * depth);
+                        }
+                        nodes[depth++] = next;
+                        synchronized (next) {
+                            next.visits++;
+                            next.virtualLosses++;
+                        }
+                        node = next;
+                        break;
+                    }
+                    int c = selectChild(node);
+                    path.pushInt(c);
+                    next = node.children[c];
+                }
+                node = next;
+            }
+
+            IntStack moves = new IntStack();
+            for (int i = 0; i < path.size(); i++) {
+                moves.pushInt(path.get(i));
+            }
+            FloodState state;
+            synchronized (node) {
+                state = node.state.copy();
+            }
+            playRollout(state, random, moves);
+
+            int total = moves.size();
+            recordGame(moves);
+            for (int i = 0; i < depth; i++) {
+                synchronized (nodes[i]) {
+                    nodes[i].virtualLosses--;
+                    nodes[i].totalMoves += total;
+                }
+            }
+            rollouts.incrementAndGet();
+        }
+
+        /**
+         * Selects the child with the best UCT value; the node is locked
+         */
+        private int selectChild(Node node) {
+
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double logVisits = Math.log(node.visits);
+            int bestSeen = bestMoves.get();
+            int worstSeen = worstMoves.get();
+            double range = Math.max(worstSeen - bestSeen, 1);
+
+            for (int c = 0; c < node.children.length; c++) {
+                Node child = node.children[c];
+                if (child == null) {
+                    continue;
+                }
+                double value;
+                synchronized (child) {
+                    double mean = (child.totalMoves + (double) child.virtualLosses * worstSeen) / child.visits;
+                    value = (worstSeen - mean) / range + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                }
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = c;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Plays a state to the end of the game, adding its moves
+         */
+        private void playRollout(FloodState state, SplittableRandom random, IntStack moves) {
+
+            while (!state.isFinished()) {
+                int mask = state.moves();
+                int c;
+                if (rollout == GREEDY_ROLLOUT && random.nextInt(RANDOM_MOVE_PERIOD) != 0) {
+                    c = -1;
+                    int bestGain = -1;
+                    for (int m = mask, k = 0; m != 0; m >>>= 1, k++) {
+                        if ((m & 1) != 0) {
+                            int gain = state.gain(k);
+                            if (gain > bestGain) {
+                                bestGain = gain;
+                                c = k;
+                            }
+                        }
+                    }
+                } else {
+                    c = pickBit(mask, random);
+                }
+                state.apply(c);
+                moves.pushInt(c);
+            }
+        }
+
+        /**
+         * Updates the best and the worst games seen
+         */
+        private void recordGame(IntStack moves) {
+
+            int total = moves.size();
+            int worst = worstMoves.get();
+            while (total > worst && !worstMoves.compareAndSet(worst, total)) {
+                worst = worstMoves.get();
+            }
+            synchronized (this) {
+                if (total < bestMoves.get()) {
+                    bestGame = new int[total];
+                    for (int i = 0; i < total; i++) {
+                        bestGame[i] = moves.get(i);
+                    }
+                    bestMoves.set(total);
+                }
+            }
+        }
+
+        /**
+         * The hint: the most visited child of the root
+         */
+        synchronized Hint getHint() {
+
+            if (root.state.isFinished()) {
+                return new Hint(-1, new int[0], rollouts.get());
+            }
+            int best = -1;
+            int bestVisits = -1;
+            for (int c = 0; c < root.children.length; c++) {
+                Node child = root.children[c];
+                if (child != null && child.visits > bestVisits) {
+                    bestVisits = child.visits;
+                    best = c;
+                }
+            }
+            return new Hint(best, bestGame, rollouts.get());
+        }
+    }
+
+    /**
+     * Picks one of the bits of a non-empty mask at random
+     */
+    private static int pickBit(int mask, SplittableRandom random) {
+
+        int k = random.nextInt(Integer.bitCount(mask));
+        for (int i = 0; i < k; i++) {
+            mask &= mask - 1;
+        }
+        return Integer.numberOfTrailingZeros(mask);
+    }
+
+}
@@ -0,0 +1,157 @@
+import java.util.Arrays;
+
+/**
+ *	Class for a stack of primitive ints using a growable array.
+ *	Unlike GenericLinkedStack, pushing does not allocate a node per element:
+ *	the array only grows when it is full, and is kept when the stack is
+ *	cleared, so a stack that is reused allocates nothing once it is warm.
+*/
+
+public class IntStack implements Stack<Integer> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int[] elems;
+	private int top; // number of elements in the stack
+
+	/**
+	 * Constructor with a default initial capacity.
+	 */
+	public IntStack() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor with a given initial capacity.
+	 *
+	 * @param capacity
+	 *            the initial number of slots
+	 */
+	public IntStack(int capacity) {
+		elems = new int[Math.max(capacity, 1)];
+		top = 0;
+	}
+
+    /**
+     * Check if the stack is empty
+     * @return true or false
+     */
+	public boolean isEmpty() {
+		return (top == 0);
+	}
+
+    /**
+     * Get the number of elements in the stack
+     * @return size
+     */
+	public int size() {
+		return top;
+	}
+
+	 /**
+     * Push a new element onto the stack
+     *
+     * @param value
+     *            the value of the element to add
+     */
+	public void pushInt(int value) {
+		if (top == elems.length) {
+			elems = Arrays.copyOf(elems, 2 * elems.length);
+		}
+		elems[top++] = value;
+	}
+
+    /**
+     * Peek at the top of the stack without removing it.
+     *
+     * @return the element at the top of the stack
+     */
+	public int peekInt() {
+		if (top == 0) {
+			throw new EmptyStackException("Cannot peek at an empty stack.");
+		}
+		return elems[top - 1];
+	}
+
+    /**
+     * Pop the top element from the stack.
+     *
+     * @return the element at the top of the stack
+     */
+	public int popInt() {
+		if (top == 0) {
+			throw new EmptyStackException("Cannot pop an empty stack.");
+		}
+		return elems[--top];
+	}
+
+    /**
+     * Get an element of the stack without removing it, 0 being the bottom.
+     *
+     * @param i
+     *            the position of the element, between 0 and size() - 1
+     * @return the element at position i
+     */
+	public int get(int i) {
+		if (i < 0 || i >= top) {
+			throw new IndexOutOfBoundsException("No element at position " + i + " of the stack.");
+		}
+		return elems[i];
+	}
+
+    /**
+     * Get the number of slots of the array, used or not
+     * @return capacity
+     */
+	public int capacity() {
+		return elems.length;
+	}
+
+    /**
+     * Shrink the capacity of the stack to its number of elements.
+     */
+	public void trimToSize() {
+		if (elems.length > top) {
+			elems = Arrays.copyOf(elems, Math.max(top, 1));
+		}
+	}
+
+    /**
+     * Remove every element of the stack in constant time, keeping its capacity.
+     */
+	public void clear() {
+		top = 0;
+	}
+
+	 /**
+     * Push a new element onto the stack (boxed version of pushInt)
+     *
+     * @param value
+     *            the value of the element to add
+     */
+	public void push(Integer value) {
+		if (value == null) {
+			throw new NullPointerException("Cannot push a null value onto the stack!");
+		}
+		pushInt(value);
+	}
+
+    /**
+     * Peek at the top of the stack without removing it (boxed version of peekInt)
+     *
+     * @return the element at the top of the stack
+     */
+	public Integer peek() {
+		return peekInt();
+	}
+
+    /**
+     * Pop the top element from the stack (boxed version of popInt)
+     *
+     * @return the element at the top of the stack
+     */
+	public Integer pop() {
+		return popInt();
+	}
+
+}
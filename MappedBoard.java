@@ -0,0 +1,463 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The class <b>MappedBoard</b> is a <b>Board</b> living in a memory-mapped file,
+ * for very large boards. The board is read and written in place: opening a saved
+ * game maps the file without reading it, and the pages are loaded lazily as the
+ * game touches them. The header must be written after every change of the board
+ * (writeState), so that the file always holds a game that can be restored; a
+ * checkpoint also flushes the pages that changed.
+ *
+ * Only the file is read lazily: a game restored from it still reads every dot
+ * once, when the canvas of <b>GameView</b> draws the board, and when the first
+ * move builds the <b>ComponentGraph</b>, which holds several ints per dot. The
+ * board is then never copied in the heap, but resuming a game takes the time of
+ * those two passes.
+ *
+ * The file starts with a header of 32 bytes:
+ * - the magic number "FLMP", which differs from the one of the files of
+ *   <b>GameFile</b>, and the version of the layout: open only accepts MAPPED_VERSION
+ * - the mode flags, the height of the board, the number of steps, the current color,
+ *   the number of colors and the width of the board
+ * followed by one byte per dot for the colors, then the captured bitset, aligned
+ * on 8 bytes. Boards are limited to 2^31 - 1 bytes of colors.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class MappedBoard implements Board {
+
+    public static final int MAPPED_MAGIC   = 0x464C4D50;   // "FLMP"
+    public static final int MAPPED_VERSION = 1;
+
+    private static final int HEADER_SIZE    = 32;
+    private static final int MAGIC_OFFSET   = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int FLAGS_OFFSET   = 6;
+    private static final int SIZE_OFFSET    = 8;
+    private static final int STEPS_OFFSET   = 12;
+    private static final int COLOR_OFFSET   = 16;
+    private static final int COLORS_OFFSET  = 20;
+    private static final int WIDTH_OFFSET   = 24;
+
+    private static final int TORUS_FLAG    = 1;
+    private static final int DIAGONAL_FLAG = 2;
+
+    private int width;
+    private int height;
+    private int length;
+    private int words;
+
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer colors;
+    private MappedByteBuffer captured;
+
+    /**
+     * Maps the regions of an open file
+     */
+    private MappedBoard(FileChannel channel, int width, int height) throws IOException {
+
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        length = width * height;
+        words = (length + 63) >>> 6;
+
+        long capturedOffset = capturedOffset(length);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        colors = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, length);
+        captured = channel.map(FileChannel.MapMode.READ_WRITE, capturedOffset, 8L * words);
+    }
+
+    /**
+     * Creates a new mapped file holding a copy of a board
+     *
+     * @param file
+     *            the file, created or overwritten
+     * @param board
+     *            the board to copy
+     * @return the mapped board
+     * @throws IOException
+     *            if the file cannot be created
+     */
+    public static MappedBoard create(File file, Board board) throws IOException {
+
+        int width = board.getWidth();
+        int height = board.getHeight();
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IOException("Board too large to be mapped.");
+        }
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        MappedBoard mapped;
+        try {
+            mapped = new MappedBoard(channel, width, height);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        mapped.header.putInt(MAGIC_OFFSET, MAPPED_MAGIC);
+        mapped.header.putShort(VERSION_OFFSET, (short) MAPPED_VERSION);
+        mapped.header.putInt(SIZE_OFFSET, height);
+        mapped.header.putInt(WIDTH_OFFSET, width);
+
+        for (int i = 0; i < mapped.length; i++) {
+            mapped.colors.put(i, (byte) board.getColor(i));
+        }
+        for (int w = 0; w < mapped.words; w++) {
+            mapped.setCapturedWord(w, board.getCapturedWord(w));
+        }
+
+        return mapped;
+    }
+
+    /**
+     * Maps an existing file, without reading the board. Only the header is
+     * checked: a file of another version is rejected.
+     *
+     * @param file
+     *            the file to map
+     * @return the mapped board
+     * @throws IOException
+     *            if the file cannot be mapped, or does not hold a mapped board
+     */
+    public static MappedBoard open(File file) throws IOException {
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a mapped saved game.");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(MAGIC_OFFSET) != MAPPED_MAGIC) {
+                throw new IOException("Not a mapped saved game.");
+            }
+            int version = header.getShort(VERSION_OFFSET);
+            if (version != MAPPED_VERSION) {
+                throw new IOException("Unsupported version of mapped saved game: " + version);
+            }
+            int height = header.getInt(SIZE_OFFSET);
+            int width = header.getInt(WIDTH_OFFSET);
+            int numberOfColors = header.getInt(COLORS_OFFSET);
+            if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE
+                || numberOfColors < GameModel.MIN_NUMBER_OF_COLORS || numberOfColors > GameModel.MAX_NUMBER_OF_COLORS
+                || !GameFile.isValidState(header.getInt(STEPS_OFFSET), header.getInt(COLOR_OFFSET), numberOfColors)
+                || channel.size() < capturedOffset(width * height) + 8L * ((width * height + 63) >>> 6)) {
+                throw new IOException("Corrupted saved game.");
+            }
+            return new MappedBoard(channel, width, height);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Offset of the captured bitset in the file, after the colors, aligned on 8 bytes
+     */
+    private static long capturedOffset(int length) {
+
+        return (HEADER_SIZE + (long) length + 7) & ~7L;
+    }
+
+    /**
+     * Writes the state of the game in the header, without flushing the file: the
+     * system writes the pages back even if the virtual machine exits, but only a
+     * checkpoint makes sure they are on the disk
+     *
+     * @param steps
+     *            the number of steps played
+     * @param color
+     *            the current color of selection
+     * @param torus
+     *            true to play on a torus
+     * @param diagonal
+     *            true to allow diagonal moves
+     * @param numberOfColors
+     *            the number of colors of the game
+     */
+    public void writeState(int steps, int color, boolean torus, boolean diagonal, int numberOfColors) {
+
+        header.putShort(FLAGS_OFFSET, (short) ((torus ? TORUS_FLAG : 0) | (diagonal ? DIAGONAL_FLAG : 0)));
+        header.putInt(STEPS_OFFSET, steps);
+        header.putInt(COLOR_OFFSET, color);
+        header.putInt(COLORS_OFFSET, numberOfColors);
+    }
+
+    /**
+     * Writes the state of the game in the header, and flushes the pages that
+     * changed to the file
+     *
+     * @param steps
+     *            the number of steps played
+     * @param color
+     *            the current color of selection
+     * @param torus
+     *            true to play on a torus
+     * @param diagonal
+     *            true to allow diagonal moves
+     * @param numberOfColors
+     *            the number of colors of the game
+     */
+    public void checkpoint(int steps, int color, boolean torus, boolean diagonal, int numberOfColors) {
+
+        writeState(steps, color, torus, diagonal, numberOfColors);
+        colors.force();
+        captured.force();
+        header.force();
+    }
+
+    /**
+     * Getter method for the number of steps saved in the header
+     *
+     * @return the number of steps
+     */
+    public int getSavedSteps() {
+
+        return header.getInt(STEPS_OFFSET);
+    }
+
+    /**
+     * Getter method for the current color saved in the header
+     *
+     * @return the current color
+     */
+    public int getSavedColor() {
+
+        return header.getInt(COLOR_OFFSET);
+    }
+
+    /**
+     * Getter method for the number of colors saved in the header
+     *
+     * @return the number of colors
+     */
+    public int getSavedNumberOfColors() {
+
+        return header.getInt(COLORS_OFFSET);
+    }
+
+    /**
+     * Getter method for the torus mode saved in the header
+     *
+     * @return true to play on a torus
+     */
+    public boolean getSavedTorusMode() {
+
+        return (header.getShort(FLAGS_OFFSET) & TORUS_FLAG) != 0;
+    }
+
+    /**
+     * Getter method for the diagonal mode saved in the header
+     *
+     * @return true to allow diagonal moves
+     */
+    public boolean getSavedDiagonalMode() {
+
+        return (header.getShort(FLAGS_OFFSET) & DIAGONAL_FLAG) != 0;
+    }
+
+    /**
+     * Closes the file. The mapping stays valid until it is garbage collected,
+     * but the board should not be used anymore.
+     *
+     * @throws IOException
+     *            if the file cannot be closed
+     */
+    public void close() throws IOException {
+
+        channel.close();
+    }
+
+    /**
+     * Getter method for the width of the board
+     *
+     * @return width
+     */
+    public int getWidth() {
+
+        return width;
+    }
+
+    /**
+     * Getter method for the height of the board
+     *
+     * @return height
+     */
+    public int getHeight() {
+
+        return height;
+    }
+
+    /**
+     * Getter method for the number of dots on the board
+     *
+     * @return width * height
+     */
+    public int length() {
+
+        return length;
+    }
+
+    /**
+     * Computes the index of the dot at location (x,y)
+     *
+     * @param x
+     *            the x coordinate of the dot
+     * @param y
+     *            the y coordinate of the dot
+     * @return x * width + y
+     */
+    public int index(int x, int y) {
+
+        return x * width + y;
+    }
+
+    /**
+     * Get for the initial color of a dot, read from the file
+     *
+     * @param index
+     *            the index of the dot
+     * @return the color stored for that dot
+     */
+    public int getColor(int index) {
+
+        return colors.get(index);
+    }
+
+    /**
+     * Setter for the initial color of a dot, written in the file
+     *
+     * @param index
+     *            the index of the dot
+     * @param color
+     *            the new color
+     */
+    public void setColor(int index, int color) {
+
+        colors.put(index, (byte) color);
+    }
+
+    /**
+     * Get for captured
+     *
+     * @param index
+     *            the index of the dot
+     * @return true if the dot is captured
+     */
+    public boolean isCaptured(int index) {
+
+        return (getCapturedWord(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets the dot to captured
+     *
+     * @param index
+     *            the index of the dot
+     */
+    public void capture(int index) {
+
+        int w = index >>> 6;
+        setCapturedWord(w, getCapturedWord(w) | (1L << index));
+    }
+
+    /**
+     * Sets the dot to not captured
+     *
+     * @param index
+     *            the index of the dot
+     */
+    public void release(int index) {
+
+        int w = index >>> 6;
+        setCapturedWord(w, getCapturedWord(w) & ~(1L << index));
+    }
+
+    /**
+     * Returns the number of longs of the captured bitset
+     *
+     * @return the number of words
+     */
+    public int getCapturedWordCount() {
+
+        return words;
+    }
+
+    /**
+     * Returns 64 captured states at once
+     *
+     * @param w
+     *            the word
+     * @return the captured bits of that word
+     */
+    public long getCapturedWord(int w) {
+
+        return captured.getLong(w << 3);
+    }
+
+    /**
+     * Sets 64 captured states at once
+     *
+     * @param w
+     *            the word
+     * @param bits
+     *            the captured bits of that word
+     */
+    public void setCapturedWord(int w, long bits) {
+
+        captured.putLong(w << 3, bits);
+    }
+
+    /**
+     * Counts the captured dots
+     *
+     * @return the number of captured dots
+     */
+    public int countCaptured() {
+
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(getCapturedWord(w));
+        }
+        return count;
+    }
+
+    /**
+     * Clears the captured state of every dot
+     */
+    public void clearCaptured() {
+
+        for (int w = 0; w < words; w++) {
+            setCapturedWord(w, 0L);
+        }
+    }
+
+    /**
+     * Copies the board in memory, as a <b>TiledBoard</b>, so that the copies of the
+     * copy are cheap
+     *
+     * @return a copy of the board
+     */
+    public Board copy() {
+
+        TiledBoard boardCopy = new TiledBoard(width, height);
+        for (int i = 0; i < length; i++) {
+            boardCopy.setColor(i, getColor(i));
+        }
+        for (int w = 0; w < words; w++) {
+            boardCopy.setCapturedWord(w, getCapturedWord(w));
+        }
+        return boardCopy;
+    }
+
+}
@@ -0,0 +1,241 @@
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The class <b>PackedBoard</b> is a <b>Board</b> storing the state of every dot
+ * (initial color, captured or not) in flat primitive arrays in memory, instead
+ * of one <b>DotInfo</b> instance per dot.
+ *
+ * Dots are addressed by their index x * width + y. Colors are stored one byte
+ * per dot, and the captured state is a bitset stored in an array of longs.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class PackedBoard implements Board, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int width;
+    private int height;
+    private byte[] colors;
+    private long[] captured;
+
+    /**
+     * Constructor used for initializing an empty board of a given size.
+     * All the dots have color 0 and none is captured.
+     *
+     * @param size
+     *            the size of the board
+     */
+    public PackedBoard(int size) {
+
+        this(size, size);
+    }
+
+    /**
+     * Constructor used for initializing an empty rectangular board.
+     * All the dots have color 0 and none is captured.
+     *
+     * @param width
+     *            the number of dots on a row
+     * @param height
+     *            the number of rows
+     */
+    public PackedBoard(int width, int height) {
+
+        this.width = width;
+        this.height = height;
+        colors = new byte[width * height];
+        captured = new long[(width * height + 63) >>> 6];
+    }
+
+    /**
+     * Getter method for the width of the board
+     *
+     * @return width
+     */
+    public int getWidth() {
+
+        return width;
+    }
+
+    /**
+     * Getter method for the height of the board
+     *
+     * @return height
+     */
+    public int getHeight() {
+
+        return height;
+    }
+
+    /**
+     * Getter method for the number of dots on the board
+     *
+     * @return width * height
+     */
+    public int length() {
+
+        return colors.length;
+    }
+
+    /**
+     * Computes the index of the dot at location (x,y)
+     *
+     * @param x
+     *            the x coordinate of the dot
+     * @param y
+     *            the y coordinate of the dot
+     * @return x * width + y
+     */
+    public int index(int x, int y) {
+
+        return x * width + y;
+    }
+
+    /**
+     * Get for the initial color of a dot
+     *
+     * @param index
+     *            the index of the dot
+     * @return the color stored for that dot
+     */
+    public int getColor(int index) {
+
+        return colors[index];
+    }
+
+    /**
+     * Setter for the initial color of a dot
+     *
+     * @param index
+     *            the index of the dot
+     * @param color
+     *            the new color
+     */
+    public void setColor(int index, int color) {
+
+        colors[index] = (byte) color;
+    }
+
+    /**
+     * Get for captured
+     *
+     * @param index
+     *            the index of the dot
+     * @return true if the dot is captured
+     */
+    public boolean isCaptured(int index) {
+
+        return (captured[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets the dot to captured
+     *
+     * @param index
+     *            the index of the dot
+     */
+    public void capture(int index) {
+
+        captured[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Sets the dot to not captured
+     *
+     * @param index
+     *            the index of the dot
+     */
+    public void release(int index) {
+
+        captured[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Returns the number of longs of the captured bitset
+     *
+     * @return the number of words
+     */
+    public int getCapturedWordCount() {
+
+        return captured.length;
+    }
+
+    /**
+     * Returns 64 captured states at once: bit b of word w is the captured
+     * state of the dot of index 64 * w + b
+     *
+     * @param w
+     *            the word
+     * @return the captured bits of that word
+     */
+    public long getCapturedWord(int w) {
+
+        return captured[w];
+    }
+
+    /**
+     * Sets 64 captured states at once
+     *
+     * @param w
+     *            the word
+     * @param bits
+     *            the captured bits of that word
+     */
+    public void setCapturedWord(int w, long bits) {
+
+        captured[w] = bits;
+    }
+
+    /**
+     * Counts the captured dots
+     *
+     * @return the number of captured dots
+     */
+    public int countCaptured() {
+
+        int count = 0;
+        for (int w = 0; w < captured.length; w++) {
+            count += Long.bitCount(captured[w]);
+        }
+        return count;
+    }
+
+    /**
+     * Clears the captured state of every dot
+     */
+    public void clearCaptured() {
+
+        Arrays.fill(captured, 0L);
+    }
+
+    /**
+     * Clones the board
+     *
+     * @return boardCopy
+     */
+    public PackedBoard clone() throws CloneNotSupportedException {
+
+        PackedBoard boardCopy = (PackedBoard) super.clone();
+        boardCopy.colors = colors.clone();
+        boardCopy.captured = captured.clone();
+        return boardCopy;
+    }
+
+    /**
+     * Copies the board
+     *
+     * @return boardCopy
+     */
+    public Board copy() {
+
+        try {
+            return clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e.toString());
+        }
+    }
+
+}
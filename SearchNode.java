@@ -0,0 +1,113 @@
+/**
+ * The class <b>SearchNode</b> is a node of the search trees of the solvers: a
+ * <b>FloodState</b>, together with the move that led to it from its parent.
+ * The sequence of moves is rebuilt by walking up the parents.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class SearchNode {
+
+    private FloodState state;
+    private SearchNode parent;
+    private int move;
+    private int depth;
+    private int bound = -1;   // lower bound on the moves left, computed once
+
+    /**
+     * Constructor for the root of a search
+     *
+     * @param state
+     *            the state to start from
+     */
+    public SearchNode(FloodState state) {
+
+        this.state = state;
+        parent = null;
+        move = -1;
+        depth = 0;
+    }
+
+    /**
+     * Constructor for a child node
+     *
+     * @param state
+     *            the state reached
+     * @param parent
+     *            the node it was reached from
+     * @param move
+     *            the color selected in the parent
+     */
+    public SearchNode(FloodState state, SearchNode parent, int move) {
+
+        this.state = state;
+        this.parent = parent;
+        this.move = move;
+        depth = parent.depth + 1;
+    }
+
+    /**
+     * Getter method for the state
+     *
+     * @return state
+     */
+    public FloodState getState() {
+
+        return state;
+    }
+
+    /**
+     * Getter method for the number of moves from the root
+     *
+     * @return depth
+     */
+    public int getDepth() {
+
+        return depth;
+    }
+
+    /**
+     * Returns the lower bound on the number of moves left from the state,
+     * computed on the first call only
+     *
+     * @return the lower bound of the state
+     */
+    public int getLowerBound() {
+
+        if (bound < 0) {
+            bound = state.lowerBound();
+        }
+        return bound;
+    }
+
+    /**
+     * Builds the child reached by selecting a color
+     *
+     * @param color
+     *            the color to select
+     * @return the child node
+     */
+    public SearchNode child(int color) {
+
+        FloodState next = state.copy();
+        next.apply(color);
+        return new SearchNode(next, this, color);
+    }
+
+    /**
+     * Rebuilds the moves from the root to this node
+     *
+     * @return the colors selected, in order
+     */
+    public int[] path() {
+
+        int[] moves = new int[depth];
+        SearchNode node = this;
+        for (int i = depth - 1; i >= 0; i--) {
+            moves[i] = node.move;
+            node = node.parent;
+        }
+        return moves;
+    }
+
+}
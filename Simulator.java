@@ -0,0 +1,526 @@
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The class <b>Simulator</b> plays many games headless, to measure how hard the
+ * boards are for a strategy: for each seed of a range and each mode, it generates
+ * the board, plays it to the end with the strategy, and writes one line with the
+ * number of steps, the time taken and the number of captured dots after each move.
+ *
+ * The strategies are:
+ * - RANDOM: a random color among those capturing something, drawn from the seed
+ *   of the board, so that a game is reproduced from its seed
+ * - GREEDY: the <b>GreedySolver</b>
+ * - BEAM: the <b>BeamSearchSolver</b>, within the time budget
+ * - ASTAR: the <b>AStarSolver</b>, within the time budget
+ *
+ * The games are split recursively between the workers of a <b>ForkJoinPool</b>,
+ * like the boards of the <b>BatchSolver</b>. Each line is written as soon as its
+ * game is over, in CSV or in JSON Lines, so the lines are not in the order of the
+ * seeds. Once every game is played, the simulator reports the throughput and the
+ * percentiles of the time of a game.
+ *
+ * Usage: java FloodIt simulate [option=value ...], with the options
+ * - size: the size of the boards, or WIDTHxHEIGHT (14 by default)
+ * - colors: the number of colors (6 by default)
+ * - modes: the modes separated by commas, among plane/orthogonal, plane/diagonal,
+ *   torus/orthogonal and torus/diagonal, or all (plane/orthogonal by default)
+ * - seeds: the range of seeds FIRST-LAST, both included, or a single seed (0-99
+ *   by default)
+ * - strategy: random, greedy, beam or astar (greedy by default)
+ * - budget: the time budget of beam and astar for a game, in milliseconds (1000
+ *   by default)
+ * - threads: the number of worker threads (every core by default)
+ * - format: csv or jsonl (csv by default)
+ * - output: the file to write the games to (the standard output by default)
+ * The report goes to the standard error, so that the output can be piped.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class Simulator {
+
+    /**
+     * predefined values for the strategies
+     */
+
+    public static final int RANDOM = 0;
+    public static final int GREEDY = 1;
+    public static final int BEAM   = 2;
+    public static final int ASTAR  = 3;
+
+    /**
+     * predefined values for the output formats
+     */
+
+    public static final int CSV   = 0;
+    public static final int JSONL = 1;
+
+    public static final String[] STRATEGIES = { "random", "greedy", "beam", "astar" };
+    public static final String[] FORMATS = { "csv", "jsonl" };
+    public static final String[] MODES = { "plane/orthogonal", "plane/diagonal", "torus/orthogonal", "torus/diagonal" };
+
+    private static final int BEAM_WIDTH = 64;
+
+    private static final String USAGE =
+        "Usage: java FloodIt simulate [option=value ...], with the options\n"
+        + "  size=SIZE or WIDTHxHEIGHT (14)\n"
+        + "  colors=COLORS (6)\n"
+        + "  modes=MODE,... among plane/orthogonal, plane/diagonal, torus/orthogonal,\n"
+        + "        torus/diagonal, or all (plane/orthogonal)\n"
+        + "  seeds=FIRST-LAST or SEED (0-99)\n"
+        + "  strategy=random|greedy|beam|astar (greedy)\n"
+        + "  budget=MILLISECONDS for beam and astar (1000)\n"
+        + "  threads=THREADS (every core)\n"
+        + "  format=csv|jsonl (csv)\n"
+        + "  output=FILE (the standard output)";
+
+    private ForkJoinPool pool;
+    private int width;
+    private int height;
+    private int numberOfColors;
+    private int strategy;
+    private long timeBudget;
+
+    private long[] gameNanos;
+    private long totalSteps;
+    private long lastBatchNanos;
+
+    /**
+     * The result of one game
+     */
+    public static class Result {
+
+        private long seed;
+        private int mode;
+        private int[] moves;
+        private int[] curve;
+        private long nanos;
+
+        private Result(long seed, int mode, int[] moves, int[] curve, long nanos) {
+            this.seed = seed;
+            this.mode = mode;
+            this.moves = moves;
+            this.curve = curve;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return the seed of the board
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * @return the mode of the game, an index in MODES
+         */
+        public int getMode() {
+            return mode;
+        }
+
+        /**
+         * @return the colors selected, in order
+         */
+        public int[] getMoves() {
+            return moves;
+        }
+
+        /**
+         * @return the number of steps of the game
+         */
+        public int getSteps() {
+            return moves.length;
+        }
+
+        /**
+         * @return the number of captured dots after each move
+         */
+        public int[] getCurve() {
+            return curve;
+        }
+
+        /**
+         * @return the time taken by the game, board generation included, in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param width
+     *            the number of dots on a row
+     * @param height
+     *            the number of rows
+     * @param numberOfColors
+     *            the number of colors
+     * @param strategy
+     *            one of RANDOM, GREEDY, BEAM or ASTAR
+     * @param timeBudget
+     *            the time budget of BEAM and ASTAR for a game, in milliseconds
+     * @param parallelism
+     *            the number of worker threads
+     */
+    public Simulator(int width, int height, int numberOfColors, int strategy, long timeBudget, int parallelism) {
+
+        if (strategy < RANDOM || strategy > ASTAR) {
+            throw new IllegalArgumentException("No such strategy: " + strategy);
+        }
+        this.width = width;
+        this.height = height;
+        this.numberOfColors = numberOfColors;
+        this.strategy = strategy;
+        this.timeBudget = timeBudget;
+        pool = new ForkJoinPool(Math.max(parallelism, 1));
+    }
+
+    /**
+     * Runs a simulation from the command line. An invalid option is reported with
+     * the list of the options, and nothing is played.
+     *
+     * @param args
+     *            the options, as option=value
+     * @throws IOException
+     *            if the output file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+
+        int width = 14, height = 14;
+        int numberOfColors = GameModel.NUMBER_OF_COLORS;
+        int[] modes = { 0 };
+        long firstSeed = 0, lastSeed = 99;
+        int strategy = GREEDY;
+        long timeBudget = 1000;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int format = CSV;
+        String output = null;
+
+        String argument = "";
+        try {
+            for (String arg : args) {
+                argument = arg;
+                int equals = arg.indexOf('=');
+                if (equals < 0) {
+                    throw new IllegalArgumentException("Expected option=value: " + arg);
+                }
+                String option = arg.substring(0, equals);
+                String value = arg.substring(equals + 1);
+                if (option.equals("size")) {
+                    String[] dimensions = value.split("x", -1);
+                    if (dimensions.length > 2) {
+                        throw new NumberFormatException();
+                    }
+                    width = Math.max(Integer.parseInt(dimensions[0]), 1);
+                    height = dimensions.length == 2 ? Math.max(Integer.parseInt(dimensions[1]), 1) : width;
+                    if ((long) width * height > Integer.MAX_VALUE) {
+                        throw new NumberFormatException();
+                    }
+                } else if (option.equals("colors")) {
+                    numberOfColors = Math.max(GameModel.MIN_NUMBER_OF_COLORS,
+                        Math.min(Integer.parseInt(value), GameModel.MAX_NUMBER_OF_COLORS));
+                } else if (option.equals("modes")) {
+                    modes = parseModes(value);
+                } else if (option.equals("seeds")) {
+                    int dash = value.indexOf('-', 1);
+                    firstSeed = Long.parseLong(dash < 0 ? value : value.substring(0, dash));
+                    lastSeed = dash < 0 ? firstSeed : Long.parseLong(value.substring(dash + 1));
+                    // the difference is negative if the range overflows
+                    long range = lastSeed - firstSeed;
+                    if (lastSeed < firstSeed || range < 0 || range >= Integer.MAX_VALUE / MODES.length) {
+                        throw new IllegalArgumentException("Unsupported range of seeds: " + value);
+                    }
+                } else if (option.equals("strategy")) {
+                    strategy = find(STRATEGIES, value);
+                } else if (option.equals("budget")) {
+                    timeBudget = Long.parseLong(value);
+                } else if (option.equals("threads")) {
+                    parallelism = Integer.parseInt(value);
+                } else if (option.equals("format")) {
+                    format = find(FORMATS, value);
+                } else if (option.equals("output")) {
+                    output = value;
+                } else {
+                    throw new IllegalArgumentException("No such option: " + option);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // also catches NumberFormatException
+            System.err.println("Invalid parameter: " + argument);
+            System.err.println(USAGE);
+            return;
+        }
+
+        PrintStream out = new PrintStream(new BufferedOutputStream(
+            output == null ? new FileOutputStream(FileDescriptor.out) : new FileOutputStream(output), 1 << 16));
+        Simulator simulator = new Simulator(width, height, numberOfColors, strategy, timeBudget, parallelism);
+        try {
+            simulator.simulate(firstSeed, lastSeed, modes, format, out);
+        } finally {
+            out.close();
+            simulator.shutdown();
+        }
+        simulator.report(System.err);
+    }
+
+    /**
+     * Plays the boards of every seed of a range, in every mode given, and writes
+     * each game as soon as it is over
+     *
+     * @param firstSeed
+     *            the seed of the first board
+     * @param lastSeed
+     *            the seed of the last board, included
+     * @param modes
+     *            the modes, indices in MODES
+     * @param format
+     *            CSV or JSONL
+     * @param out
+     *            where to write the games
+     */
+    public void simulate(long firstSeed, long lastSeed, int[] modes, int format, PrintStream out) {
+
+        long games = (lastSeed - firstSeed + 1) * modes.length;
+        if (lastSeed < firstSeed || games > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported range of seeds: " + firstSeed + "-" + lastSeed);
+        }
+
+        gameNanos = new long[(int) games];
+        totalSteps = 0;
+        if (format == CSV) {
+            out.println("seed,mode,steps,nanos,curve");
+        }
+
+        long start = System.nanoTime();
+        pool.invoke(new GamesTask(firstSeed, modes, format, out, 0, (int) games));
+        lastBatchNanos = System.nanoTime() - start;
+        out.flush();
+    }
+
+    /**
+     * Plays one board to the end
+     *
+     * @param seed
+     *            the seed of the board
+     * @param mode
+     *            the mode, an index in MODES
+     * @return the result of the game
+     */
+    public Result play(long seed, int mode) {
+
+        long begin = System.nanoTime();
+        GameModel model = new GameModel(width, height, numberOfColors, seed, mode >= 2, mode % 2 == 1,
+                                        new UniformGenerator());
+        FloodState start = new FloodState(model);
+
+        int[] moves;
+        if (strategy == RANDOM) {
+            moves = playRandom(start, new SplittableRandom(seed));
+        } else if (strategy == GREEDY) {
+            moves = new GreedySolver().solve(start);
+        } else if (strategy == BEAM) {
+            moves = new BeamSearchSolver(BEAM_WIDTH, timeBudget).solve(start);
+        } else {
+            moves = new AStarSolver(timeBudget).solve(start);
+        }
+
+        FloodState state = start.copy();
+        int[] curve = new int[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            state.apply(moves[i]);
+            curve[i] = state.getCapturedDots();
+        }
+        if (!state.isFinished()) {
+            throw new IllegalStateException("Game " + seed + " not finished by " + STRATEGIES[strategy]);
+        }
+
+        return new Result(seed, mode, moves, curve, System.nanoTime() - begin);
+    }
+
+    /**
+     * Returns the throughput of the last simulation
+     *
+     * @return games played per second
+     */
+    public double getThroughput() {
+
+        if (lastBatchNanos == 0) {
+            return 0;
+        }
+        return gameNanos.length * 1e9 / lastBatchNanos;
+    }
+
+    /**
+     * Returns a percentile of the time of a game, in the last simulation
+     *
+     * @param percentile
+     *            between 0 and 100
+     * @return the time, in nanoseconds
+     */
+    public long getPercentile(double percentile) {
+
+        if (gameNanos == null || gameNanos.length == 0) {
+            return 0;
+        }
+        long[] sorted = gameNanos.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(rank, sorted.length - 1))];
+    }
+
+    /**
+     * Prints the throughput of the last simulation, its mean number of steps and
+     * the percentiles of the time of a game
+     *
+     * @param out
+     *            where to print
+     */
+    public void report(PrintStream out) {
+
+        int games = gameNanos == null ? 0 : gameNanos.length;
+        out.println(games + " games, " + STRATEGIES[strategy] + ", "
+            + String.format("%.2f", games == 0 ? 0.0 : (double) totalSteps / games) + " steps on average, "
+            + String.format("%.1f", getThroughput()) + " games/s on " + pool.getParallelism() + " threads");
+        out.println("time of a game: " + String.format("p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+            getPercentile(50) / 1e6, getPercentile(90) / 1e6, getPercentile(99) / 1e6, getPercentile(100) / 1e6));
+    }
+
+    /**
+     * Stops the worker threads
+     */
+    public void shutdown() {
+
+        pool.shutdown();
+    }
+
+    /**
+     * Plays random colors among those capturing something
+     */
+    private static int[] playRandom(FloodState start, SplittableRandom random) {
+
+        FloodState state = start.copy();
+        IntStack moves = new IntStack();
+        while (!state.isFinished()) {
+            int mask = state.moves();
+            int k = random.nextInt(Integer.bitCount(mask));
+            for (int i = 0; i < k; i++) {
+                mask &= mask - 1;
+            }
+            int c = Integer.numberOfTrailingZeros(mask);
+            state.apply(c);
+            moves.pushInt(c);
+        }
+        int[] colors = new int[moves.size()];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = moves.get(i);
+        }
+        return colors;
+    }
+
+    /**
+     * Writes a game on one line
+     */
+    private static String format(Result result, int format) {
+
+        StringBuilder line = new StringBuilder(32 + 6 * result.curve.length);
+        if (format == CSV) {
+            line.append(result.seed).append(',').append(MODES[result.mode]).append(',')
+                .append(result.getSteps()).append(',').append(result.nanos).append(',');
+            for (int i = 0; i < result.curve.length; i++) {
+                line.append(i == 0 ? "" : ";").append(result.curve[i]);
+            }
+        } else {
+            line.append("{\"seed\":").append(result.seed)
+                .append(",\"mode\":\"").append(MODES[result.mode])
+                .append("\",\"steps\":").append(result.getSteps())
+                .append(",\"nanos\":").append(result.nanos)
+                .append(",\"curve\":[");
+            for (int i = 0; i < result.curve.length; i++) {
+                line.append(i == 0 ? "" : ",").append(result.curve[i]);
+            }
+            line.append("]}");
+        }
+        return line.toString();
+    }
+
+    /**
+     * Parses modes separated by commas, or all
+     */
+    private static int[] parseModes(String list) {
+
+        if (list.equals("all")) {
+            return new int[]{ 0, 1, 2, 3 };
+        }
+        String[] names = list.split(",");
+        int[] modes = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            modes[i] = find(MODES, names[i].trim());
+        }
+        return modes;
+    }
+
+    /**
+     * The index of a name in a list of names
+     */
+    private static int find(String[] names, String name) {
+
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Expected one of " + Arrays.toString(names) + ": " + name);
+    }
+
+    /**
+     * Task playing the games in [from, to), split in halves: game i is the board
+     * of seed firstSeed + i / modes.length, in mode modes[i % modes.length]
+     */
+    private class GamesTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private long firstSeed;
+        private int[] modes;
+        private int format;
+        private PrintStream out;
+        private int from, to;
+
+        GamesTask(long firstSeed, int[] modes, int format, PrintStream out, int from, int to) {
+            this.firstSeed = firstSeed;
+            this.modes = modes;
+            this.format = format;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    Result result = play(firstSeed + from / modes.length, modes[from % modes.length]);
+                    String line = Simulator.format(result, format);
+                    synchronized (Simulator.this) {
+                        gameNanos[from] = result.nanos;
+                        totalSteps += result.getSteps();
+                        out.println(line);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new GamesTask(firstSeed, modes, format, out, from, middle),
+                      new GamesTask(firstSeed, modes, format, out, middle, to));
+        }
+    }
+
+}
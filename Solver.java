@@ -0,0 +1,21 @@
+/**
+ * A <b>Solver</b> computes a sequence of colors that finishes a game of FloodIt,
+ * starting from the current state of a <b>GameModel</b>. The model is not changed.
+ * The moves follow the rules of the <b>GameEngine</b>, and the torus and diagonal
+ * modes of the model.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public interface Solver {
+
+    /**
+     * Computes a sequence of moves finishing the game.
+     *
+     * @param model the model of the game, which is not modified.
+     * @return the colors to select, in order.
+     */
+
+    public abstract int[] solve(GameModel model);
+
+}
@@ -1,26 +1,26 @@
-// Author: Weiyun Lu
-// Student number: 4559953
-// Course: ITI 1121-B
-// Assignment: 3
-// Question: n/a
-
-public class StudentInfo {
-
-    /**
-     * Displays the student information: student name, id, section, etc for each
-     * member of the team.
-     */
-
-    public static void display() {
-
-	System.out.println("************************************************************");
-	System.out.println("*Name: Weiyun Lu                                           *");
-	System.out.println("*Student ID: 4559953                                       *");
-	System.out.println("*Course: ITI1121-B                                         *");
-	System.out.println("*Assignment number: 4                                      *");
-	System.out.println("************************************************************");
-	System.out.println();
-
-    }
-
+// Author: Weiyun Lu
+// Student number: 4559953
+// Course: ITI 1121-B
+// Assignment: 3
+// Question: n/a
+
+public class StudentInfo {
+
+    /**
+     * Displays the student information: student name, id, section, etc for each
+     * member of the team.
+     */
+
+    public static void display() {
+
+	System.out.println("************************************************************");
+	System.out.println("*Name: Weiyun Lu                                           *");
+	System.out.println("*Student ID: 4559953                                       *");
+	System.out.println("*Course: ITI1121-B                                         *");
+	System.out.println("*Assignment number: 4                                      *");
+	System.out.println("************************************************************");
+	System.out.println();
+
+    }
+
 }
\ No newline at end of file
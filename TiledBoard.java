@@ -0,0 +1,381 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The class <b>TiledBoard</b> is a persistent <b>Board</b>: copying it takes a
+ * constant time, whatever its size, and the board and its copies then share their
+ * memory until they are written.
+ *
+ * The dots are split in tiles of TILE_DOTS consecutive indices, each tile holding
+ * the colors of its dots (one byte per dot) and their captured bitset (TILE_WORDS
+ * longs). The board only keeps two directories of tiles. A copy shares the
+ * directories and the tiles of the board, and both are marked as shared: the first
+ * write to a shared board copies its directories, and the first write to a tile
+ * copies the tile (copy on write). A move thus only copies the tiles of the dots it
+ * captures, and a board that is never written again never copies anything.
+ *
+ * A shared tile is never written: a board and its copies can be read by different
+ * threads, as long as each one is written by one thread at a time. Several threads
+ * may only set the colors of different dots at once after clearColors, which gives
+ * the board a tile of its own for every dot.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class TiledBoard implements Board, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int TILE_SHIFT = 10;
+    public static final int TILE_DOTS  = 1 << TILE_SHIFT;
+    public static final int TILE_WORDS = TILE_DOTS >>> 6;
+
+    private int width;
+    private int height;
+    private int length;
+    private byte[][] colors;     // the directories of the tiles
+    private long[][] captured;
+
+    // The tiles this board may write, and whether its directories are shared with
+    // a copy, in which case no tile is its own.
+    private transient boolean[] ownColors;
+    private transient boolean[] ownCaptured;
+    private transient boolean shared;
+
+    /**
+     * Constructor used for initializing an empty board of a given size.
+     * All the dots have color 0 and none is captured.
+     *
+     * @param size
+     *            the size of the board
+     */
+    public TiledBoard(int size) {
+
+        this(size, size);
+    }
+
+    /**
+     * Constructor used for initializing an empty rectangular board.
+     * All the dots have color 0 and none is captured.
+     *
+     * @param width
+     *            the number of dots on a row
+     * @param height
+     *            the number of rows
+     */
+    public TiledBoard(int width, int height) {
+
+        this.width = width;
+        this.height = height;
+        length = width * height;
+        int tiles = (length + TILE_DOTS - 1) >>> TILE_SHIFT;
+        colors = new byte[tiles][];
+        captured = new long[tiles][];
+        ownColors = new boolean[tiles];
+        ownCaptured = new boolean[tiles];
+        for (int t = 0; t < tiles; t++) {
+            colors[t] = new byte[TILE_DOTS];
+            captured[t] = new long[TILE_WORDS];
+            ownColors[t] = true;
+            ownCaptured[t] = true;
+        }
+    }
+
+    /**
+     * Getter method for the width of the board
+     *
+     * @return width
+     */
+    public int getWidth() {
+
+        return width;
+    }
+
+    /**
+     * Getter method for the height of the board
+     *
+     * @return height
+     */
+    public int getHeight() {
+
+        return height;
+    }
+
+    /**
+     * Getter method for the number of dots on the board
+     *
+     * @return width * height
+     */
+    public int length() {
+
+        return length;
+    }
+
+    /**
+     * Computes the index of the dot at location (x,y)
+     *
+     * @param x
+     *            the x coordinate of the dot
+     * @param y
+     *            the y coordinate of the dot
+     * @return x * width + y
+     */
+    public int index(int x, int y) {
+
+        return x * width + y;
+    }
+
+    /**
+     * Get for the initial color of a dot
+     *
+     * @param index
+     *            the index of the dot
+     * @return the color stored for that dot
+     */
+    public int getColor(int index) {
+
+        return colors[index >>> TILE_SHIFT][index & (TILE_DOTS - 1)];
+    }
+
+    /**
+     * Setter for the initial color of a dot
+     *
+     * @param index
+     *            the index of the dot
+     * @param color
+     *            the new color
+     */
+    public void setColor(int index, int color) {
+
+        colorTile(index >>> TILE_SHIFT)[index & (TILE_DOTS - 1)] = (byte) color;
+    }
+
+    /**
+     * Get for captured
+     *
+     * @param index
+     *            the index of the dot
+     * @return true if the dot is captured
+     */
+    public boolean isCaptured(int index) {
+
+        return (captured[index >>> TILE_SHIFT][(index >>> 6) & (TILE_WORDS - 1)] & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets the dot to captured
+     *
+     * @param index
+     *            the index of the dot
+     */
+    public void capture(int index) {
+
+        capturedTile(index >>> TILE_SHIFT)[(index >>> 6) & (TILE_WORDS - 1)] |= 1L << index;
+    }
+
+    /**
+     * Sets the dot to not captured
+     *
+     * @param index
+     *            the index of the dot
+     */
+    public void release(int index) {
+
+        capturedTile(index >>> TILE_SHIFT)[(index >>> 6) & (TILE_WORDS - 1)] &= ~(1L << index);
+    }
+
+    /**
+     * Returns the number of longs of the captured bitset
+     *
+     * @return the number of words
+     */
+    public int getCapturedWordCount() {
+
+        return (length + 63) >>> 6;
+    }
+
+    /**
+     * Returns 64 captured states at once: bit b of word w is the captured
+     * state of the dot of index 64 * w + b
+     *
+     * @param w
+     *            the word
+     * @return the captured bits of that word
+     */
+    public long getCapturedWord(int w) {
+
+        return captured[w >>> (TILE_SHIFT - 6)][w & (TILE_WORDS - 1)];
+    }
+
+    /**
+     * Sets 64 captured states at once
+     *
+     * @param w
+     *            the word
+     * @param bits
+     *            the captured bits of that word
+     */
+    public void setCapturedWord(int w, long bits) {
+
+        long[] tile = captured[w >>> (TILE_SHIFT - 6)];
+        if (tile[w & (TILE_WORDS - 1)] != bits) {
+            capturedTile(w >>> (TILE_SHIFT - 6))[w & (TILE_WORDS - 1)] = bits;
+        }
+    }
+
+    /**
+     * Counts the captured dots
+     *
+     * @return the number of captured dots
+     */
+    public int countCaptured() {
+
+        int count = 0;
+        for (int t = 0; t < captured.length; t++) {
+            long[] tile = captured[t];
+            for (int w = 0; w < TILE_WORDS; w++) {
+                count += Long.bitCount(tile[w]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Clears the captured state of every dot. The shared tiles are replaced by
+     * empty ones rather than copied.
+     */
+    public void clearCaptured() {
+
+        ownDirectories();
+        for (int t = 0; t < captured.length; t++) {
+            if (ownCaptured[t]) {
+                Arrays.fill(captured[t], 0L);
+            } else {
+                captured[t] = new long[TILE_WORDS];
+                ownCaptured[t] = true;
+            }
+        }
+    }
+
+    /**
+     * Sets the color of every dot to 0. The shared tiles are replaced by new ones
+     * rather than copied, so that every tile is then the board's own: different
+     * dots can then be colored by different threads, none of them copying a tile.
+     */
+    public void clearColors() {
+
+        ownDirectories();
+        for (int t = 0; t < colors.length; t++) {
+            if (ownColors[t]) {
+                Arrays.fill(colors[t], (byte) 0);
+            } else {
+                colors[t] = new byte[TILE_DOTS];
+                ownColors[t] = true;
+            }
+        }
+    }
+
+    /**
+     * Getter method for the number of tiles this board does not share
+     *
+     * @return the number of tiles of colors and of captured states written since
+     *         the board was last copied
+     */
+    public int getOwnTileCount() {
+
+        if (shared) {
+            return 0;
+        }
+        int count = 0;
+        for (int t = 0; t < captured.length; t++) {
+            count += (ownColors[t] ? 1 : 0) + (ownCaptured[t] ? 1 : 0);
+        }
+        return count;
+    }
+
+    /**
+     * Clones the board, in a constant time: the board and its clone share their
+     * tiles until they are written
+     *
+     * @return boardCopy
+     */
+    public TiledBoard clone() throws CloneNotSupportedException {
+
+        TiledBoard boardCopy = (TiledBoard) super.clone();
+        shared = true;
+        boardCopy.shared = true;
+        return boardCopy;
+    }
+
+    /**
+     * Copies the board, in a constant time
+     *
+     * @return boardCopy
+     */
+    public Board copy() {
+
+        try {
+            return clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e.toString());
+        }
+    }
+
+    /**
+     * Returns tile t of the colors, copied first if it is shared
+     */
+    private byte[] colorTile(int t) {
+
+        if (shared) {
+            ownDirectories();
+        }
+        if (!ownColors[t]) {
+            colors[t] = colors[t].clone();
+            ownColors[t] = true;
+        }
+        return colors[t];
+    }
+
+    /**
+     * Returns tile t of the captured states, copied first if it is shared
+     */
+    private long[] capturedTile(int t) {
+
+        if (shared) {
+            ownDirectories();
+        }
+        if (!ownCaptured[t]) {
+            captured[t] = captured[t].clone();
+            ownCaptured[t] = true;
+        }
+        return captured[t];
+    }
+
+    /**
+     * Copies the directories if they are shared: the tiles themselves stay shared
+     */
+    private void ownDirectories() {
+
+        if (!shared) {
+            return;
+        }
+        colors = colors.clone();
+        captured = captured.clone();
+        ownColors = new boolean[colors.length];
+        ownCaptured = new boolean[captured.length];
+        shared = false;
+    }
+
+    /**
+     * Restores a board from a stream: its tiles may be shared with the other boards
+     * read from the same stream, so none is its own
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+
+        in.defaultReadObject();
+        shared = true;
+    }
+
+}
@@ -0,0 +1,226 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The class <b>TranspositionTable</b> remembers the states reached by searches, by
+ * their Zobrist hash (see <b>GameModel</b> and <b>FloodState</b>), together with the
+ * smallest number of steps they were reached with. A search reaching a state again
+ * with as many steps or more can then skip it, even when the first visit was made
+ * by another search running in parallel.
+ *
+ * The table has a fixed number of entries, grouped in buckets of BUCKET_SIZE
+ * consecutive entries: a hash can only be stored in its bucket (open addressing
+ * with a short linear probe). When the bucket is full, the replacement policy
+ * chooses the entry to overwrite:
+ * - REPLACE_ALWAYS: the new state always replaces one of the bucket
+ * - REPLACE_DEEPER: the entry reached with the most steps is replaced, and only
+ *   by a state reached with fewer steps, which prunes more
+ * - REPLACE_OLDER: as REPLACE_DEEPER, but the entries of older searches (see
+ *   newSearch) are replaced first
+ *
+ * The table is lock-free: an entry is two longs, the hash xored with the data, and
+ * the data. Two threads writing the same entry at once may leave a pair that does
+ * not match any hash, which is then read as a miss; a lost entry only costs a
+ * state searched twice. Two different states with the same 64-bit hash would be
+ * confused, which is unlikely enough to be ignored.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class TranspositionTable {
+
+    /**
+     * predefined values for the replacement policy
+     */
+
+    public static final int REPLACE_ALWAYS = 0;
+    public static final int REPLACE_DEEPER = 1;
+    public static final int REPLACE_OLDER  = 2;
+
+    public static final int NOT_FOUND = -1;
+
+    public static final int BUCKET_SIZE = 4;
+
+    // data of an entry: USED, the generation on 16 bits, then the steps on 32 bits
+    private static final long USED = 1L << 63;
+    private static final int GENERATION_SHIFT = 32;
+    private static final long GENERATION_MASK = 0xFFFFL;
+    private static final long STEPS_MASK = 0xFFFFFFFFL;
+
+    private AtomicLongArray entries;   // two longs per entry: hash ^ data, then data
+    private int capacity;
+    private int bucketMask;
+    private int policy;
+    private volatile int generation;
+
+    /**
+     * Constructor
+     *
+     * @param capacity
+     *            the number of entries, rounded up to a power of two
+     * @param policy
+     *            one of REPLACE_ALWAYS, REPLACE_DEEPER or REPLACE_OLDER
+     */
+    public TranspositionTable(int capacity, int policy) {
+
+        if (capacity < 1 || capacity > 1 << 29) {
+            throw new IllegalArgumentException("Unsupported capacity: " + capacity);
+        }
+        this.capacity = Math.max(Integer.highestOneBit(capacity - 1) << 1, BUCKET_SIZE);
+        bucketMask = this.capacity / BUCKET_SIZE - 1;
+        entries = new AtomicLongArray(2 * this.capacity);
+        this.policy = policy;
+    }
+
+    /**
+     * Getter method for the number of entries
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+
+        return capacity;
+    }
+
+    /**
+     * Getter method for the replacement policy
+     *
+     * @return policy
+     */
+    public int getPolicy() {
+
+        return policy;
+    }
+
+    /**
+     * Starts a new search: with REPLACE_OLDER, the entries of the previous searches
+     * are replaced first
+     */
+    public void newSearch() {
+
+        generation = (int) ((generation + 1) & GENERATION_MASK);
+    }
+
+    /**
+     * Removes every entry
+     */
+    public void clear() {
+
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, 0L);
+        }
+    }
+
+    /**
+     * Looks a state up
+     *
+     * @param hash
+     *            the Zobrist hash of the state
+     * @return the smallest number of steps the state was stored with, NOT_FOUND if
+     *         it is not in the table
+     */
+    public int get(long hash) {
+
+        int first = bucket(hash);
+        for (int e = first; e < first + BUCKET_SIZE; e++) {
+            long data = entries.get(2 * e + 1);
+            if ((data & USED) != 0 && (entries.get(2 * e) ^ data) == hash) {
+                return (int) (data & STEPS_MASK);
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Offers a state reached with a number of steps. It is stored, unless the
+     * table already holds it with as many steps or fewer, or the policy keeps the
+     * entries of its bucket.
+     *
+     * @param hash
+     *            the Zobrist hash of the state
+     * @param steps
+     *            the number of steps the state was reached with, at least 0
+     * @return false if the state was already reached with as many steps or fewer,
+     *         so that it can be skipped; true otherwise
+     */
+    public boolean offer(long hash, int steps) {
+
+        int first = bucket(hash);
+        int victim = -1;
+        long victimData = 0;
+
+        for (int e = first; e < first + BUCKET_SIZE; e++) {
+            long data = entries.get(2 * e + 1);
+            if ((data & USED) == 0) {
+                if (victim < 0 || (victimData & USED) != 0) {
+                    victim = e;
+                    victimData = data;
+                }
+                continue;
+            }
+            if ((entries.get(2 * e) ^ data) == hash) {
+                if ((data & STEPS_MASK) <= steps) {
+                    return false;
+                }
+                store(e, hash, steps);
+                return true;
+            }
+            if (victim < 0 || ((victimData & USED) != 0 && isBetterVictim(data, victimData))) {
+                victim = e;
+                victimData = data;
+            }
+        }
+
+        if ((victimData & USED) == 0 || policy == REPLACE_ALWAYS
+            || (policy == REPLACE_OLDER && generationOf(victimData) != generation)
+            || (victimData & STEPS_MASK) >= steps) {
+            store(victim, hash, steps);
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the entry holding data should be replaced rather than the
+     * one holding victimData, following the policy
+     */
+    private boolean isBetterVictim(long data, long victimData) {
+
+        if (policy == REPLACE_ALWAYS) {
+            return false;   // the first entry of the bucket
+        }
+        if (policy == REPLACE_OLDER) {
+            boolean old = generationOf(data) != generation;
+            boolean victimOld = generationOf(victimData) != generation;
+            if (old != victimOld) {
+                return old;
+            }
+        }
+        return (data & STEPS_MASK) > (victimData & STEPS_MASK);
+    }
+
+    /**
+     * Writes an entry
+     */
+    private void store(int e, long hash, int steps) {
+
+        long data = USED | ((long) generation << GENERATION_SHIFT) | (steps & STEPS_MASK);
+        entries.set(2 * e + 1, data);
+        entries.set(2 * e, hash ^ data);
+    }
+
+    /**
+     * The generation of the data of an entry
+     */
+    private static int generationOf(long data) {
+
+        return (int) ((data >>> GENERATION_SHIFT) & GENERATION_MASK);
+    }
+
+    /**
+     * The first entry of the bucket of a hash
+     */
+    private int bucket(long hash) {
+
+        return ((int) (hash ^ (hash >>> 32)) & bucketMask) * BUCKET_SIZE;
+    }
+
+}
@@ -0,0 +1,30 @@
+/**
+ * The class <b>UniformGenerator</b> gives every dot a color chosen uniformly at
+ * random. This is the generator of the original game.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class UniformGenerator extends HashedGenerator {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Computes the color of a dot, uniformly at random
+     *
+     * @param x
+     *            the x coordinate of the dot
+     * @param y
+     *            the y coordinate of the dot
+     * @param numberOfColors
+     *            the number of colors
+     * @param seed
+     *            the seed of the board
+     * @return the color of the dot
+     */
+    protected int color(int x, int y, int numberOfColors, long seed) {
+
+        return uniform(hash(seed, ((long) x << 32) | y), numberOfColors);
+    }
+
+}
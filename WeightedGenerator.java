@@ -0,0 +1,68 @@
+/**
+ * The class <b>WeightedGenerator</b> chooses the color of every dot at random,
+ * some colors being more frequent than others. Color c has a probability
+ * proportional to its weight; colors without a weight never appear.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class WeightedGenerator extends HashedGenerator {
+
+    private static final long serialVersionUID = 1L;
+
+    private double[] cumulative;    // cumulative[c] = probability of a color <= c
+
+    /**
+     * Constructor
+     *
+     * @param weights
+     *            the weight of each color, non-negative and not all zero
+     */
+    public WeightedGenerator(double[] weights) {
+
+        double total = 0;
+        for (int c = 0; c < weights.length; c++) {
+            if (weights[c] < 0 || Double.isNaN(weights[c])) {
+                throw new IllegalArgumentException("Invalid weight for color " + c + ": " + weights[c]);
+            }
+            total += weights[c];
+        }
+        if (!(total > 0)) {
+            throw new IllegalArgumentException("At least one color must have a weight.");
+        }
+
+        cumulative = new double[weights.length];
+        double sum = 0;
+        for (int c = 0; c < weights.length; c++) {
+            sum += weights[c];
+            cumulative[c] = sum / total;
+        }
+        cumulative[weights.length - 1] = 1.0;
+    }
+
+    /**
+     * Computes the color of a dot, at random according to the weights
+     *
+     * @param x
+     *            the x coordinate of the dot
+     * @param y
+     *            the y coordinate of the dot
+     * @param numberOfColors
+     *            the number of colors; colors beyond the weights never appear
+     * @param seed
+     *            the seed of the board
+     * @return the color of the dot
+     */
+    protected int color(int x, int y, int numberOfColors, long seed) {
+
+        double u = (hash(seed, ((long) x << 32) | y) >>> 11) * 0x1.0p-53;
+        int last = Math.min(cumulative.length, numberOfColors) - 1;
+        for (int c = 0; c < last; c++) {
+            if (u < cumulative[c]) {
+                return c;
+            }
+        }
+        return last;
+    }
+
+}
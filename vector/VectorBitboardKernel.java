@@ -0,0 +1,150 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The class <b>VectorBitboardKernel</b> is a <b>BitboardKernel</b> using the Vector
+ * API: each operation works on as many longs at once as the preferred vectors of
+ * the processor hold (8 with AVX-512), and on the remaining longs one at a time.
+ *
+ * It needs the incubator module jdk.incubator.vector, both to compile and to run,
+ * so it lives in its own source directory, which is only compiled with the module:
+ * javac --add-modules jdk.incubator.vector *.java vector/*.java. It is only created
+ * by BitboardKernel.getVectorKernel, when the module is there.
+ *
+ * @author Weiyun Lu, University of Ottawa
+ */
+
+public class VectorBitboardKernel extends BitboardKernel {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    /**
+     * Returns true if the kernel uses the Vector API
+     *
+     * @return true
+     */
+    public boolean isVector() {
+
+        return true;
+    }
+
+    /**
+     * Returns true if some bit of a is not in b, on n longs
+     */
+    public boolean anyAndNot(long[] a, int aOffset, long[] b, int bOffset, int n) {
+
+        int w = 0;
+        for (; w + LANES <= n; w += LANES) {
+            LongVector v = LongVector.fromArray(SPECIES, a, aOffset + w)
+                .lanewise(VectorOperators.AND_NOT, LongVector.fromArray(SPECIES, b, bOffset + w));
+            if (v.compare(VectorOperators.NE, 0L).anyTrue()) {
+                return true;
+            }
+        }
+        return super.anyAndNot(a, aOffset + w, b, bOffset + w, n - w);
+    }
+
+    /**
+     * Adds n longs of src to out
+     */
+    public void or(long[] src, int srcOffset, long[] out, int n) {
+
+        int w = 0;
+        for (; w + LANES <= n; w += LANES) {
+            LongVector.fromArray(SPECIES, out, w).or(LongVector.fromArray(SPECIES, src, srcOffset + w))
+                .intoArray(out, w);
+        }
+        for (; w < n; w++) {
+            out[w] |= src[srcOffset + w];
+        }
+    }
+
+    /**
+     * Adds n longs of src to out, shifted by one bit towards the higher bits
+     */
+    public void orShiftedUp(long[] src, int srcOffset, long[] out, int n) {
+
+        out[0] |= src[srcOffset] << 1;
+        int w = 1;
+        for (; w + LANES <= n; w += LANES) {
+            LongVector shifted = LongVector.fromArray(SPECIES, src, srcOffset + w).lanewise(VectorOperators.LSHL, 1)
+                .or(LongVector.fromArray(SPECIES, src, srcOffset + w - 1).lanewise(VectorOperators.LSHR, 63));
+            LongVector.fromArray(SPECIES, out, w).or(shifted).intoArray(out, w);
+        }
+        for (; w < n; w++) {
+            out[w] |= (src[srcOffset + w] << 1) | (src[srcOffset + w - 1] >>> 63);
+        }
+    }
+
+    /**
+     * Adds n longs of src to out, shifted by one bit towards the lower bits
+     */
+    public void orShiftedDown(long[] src, int srcOffset, long[] out, int n) {
+
+        int w = 0;
+        for (; w + LANES <= n - 1; w += LANES) {
+            LongVector shifted = LongVector.fromArray(SPECIES, src, srcOffset + w).lanewise(VectorOperators.LSHR, 1)
+                .or(LongVector.fromArray(SPECIES, src, srcOffset + w + 1).lanewise(VectorOperators.LSHL, 63));
+            LongVector.fromArray(SPECIES, out, w).or(shifted).intoArray(out, w);
+        }
+        for (; w < n - 1; w++) {
+            out[w] |= (src[srcOffset + w] >>> 1) | (src[srcOffset + w + 1] << 63);
+        }
+        out[n - 1] |= src[srcOffset + n - 1] >>> 1;
+    }
+
+    /**
+     * Keeps in out the bits of mask that are not in region, on n longs
+     */
+    public boolean maskFree(long[] out, long[] mask, long[] region, int offset, int n) {
+
+        boolean any = false;
+        int w = 0;
+        for (; w + LANES <= n; w += LANES) {
+            LongVector free = LongVector.fromArray(SPECIES, mask, offset + w)
+                .lanewise(VectorOperators.AND_NOT, LongVector.fromArray(SPECIES, region, offset + w));
+            LongVector v = LongVector.fromArray(SPECIES, out, w).and(free);
+            v.intoArray(out, w);
+            any |= v.compare(VectorOperators.NE, 0L).anyTrue();
+        }
+        long bits = 0;
+        for (; w < n; w++) {
+            out[w] &= mask[offset + w] & ~region[offset + w];
+            bits |= out[w];
+        }
+        return any || bits != 0;
+    }
+
+    /**
+     * Fills each of the n longs of seed, without crossing to the next long
+     */
+    public void fill(long[] seed, long[] mask, long[] region, int offset, int n) {
+
+        int w = 0;
+        for (; w + LANES <= n; w += LANES) {
+            LongVector open = LongVector.fromArray(SPECIES, mask, offset + w)
+                .or(LongVector.fromArray(SPECIES, region, offset + w));
+            LongVector g = LongVector.fromArray(SPECIES, seed, w);
+            fill(g, open, VectorOperators.LSHL).or(fill(g, open, VectorOperators.LSHR)).intoArray(seed, w);
+        }
+        for (; w < n; w++) {
+            long open = mask[offset + w] | region[offset + w];
+            seed[w] = fillUp(seed[w], open) | fillDown(seed[w], open);
+        }
+    }
+
+    /**
+     * Occluded fill of the lanes of g through open, with the given shift
+     */
+    private static LongVector fill(LongVector g, LongVector open, VectorOperators.Binary shift) {
+
+        for (int s = 1; s < 64; s <<= 1) {
+            g = g.or(open.and(g.lanewise(shift, s)));
+            open = open.and(open.lanewise(shift, s));
+        }
+        return g;
+    }
+
+}